@@ -1,4 +1,5 @@
 package com.task.wallet.controllers;
+import com.task.wallet.dto.OperationHistoryDto;
 import com.task.wallet.dto.WalletDto;
 import com.task.wallet.dto.requests.OperationRequest;
 import com.task.wallet.dto.responses.OperationResponse;
@@ -7,6 +8,8 @@ import com.task.wallet.services.operations.OperationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RequiredArgsConstructor
 @RestController
@@ -15,13 +18,28 @@ public class ApiController {
     private final OperationService operationService;
     private final CRUDService crudService;
 
+    /**
+     * Completes asynchronously, so the request's thread is released while the operation waits for its batch.
+     */
     @PostMapping("/wallet")
-    public ResponseEntity<OperationResponse> createOperation(@RequestBody OperationRequest operationRequest) {
-        return ResponseEntity.ok(operationService.processOperation(operationRequest));
+    public CompletableFuture<ResponseEntity<OperationResponse>> createOperation(@RequestBody OperationRequest operationRequest) {
+        return operationService.processOperationAsync(operationRequest).thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("/wallet/batch")
+    public ResponseEntity<List<OperationResponse>> createOperations(@RequestBody List<OperationRequest> operationRequests) {
+        return ResponseEntity.ok(operationService.processOperations(operationRequests));
     }
 
     @GetMapping("/wallet/{walletUuid}")
     public ResponseEntity<WalletDto> getDataWallet(@PathVariable String walletUuid) {
         return ResponseEntity.ok(crudService.getDataWallet(walletUuid));
     }
-}
\ No newline at end of file
+
+    @GetMapping("/wallet/{walletUuid}/operations")
+    public ResponseEntity<OperationHistoryDto> getWalletOperations(@PathVariable String walletUuid,
+                                                                   @RequestParam(required = false) Long before,
+                                                                   @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(crudService.getWalletOperations(walletUuid, before, limit));
+    }
+}
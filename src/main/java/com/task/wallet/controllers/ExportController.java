@@ -0,0 +1,29 @@
+package com.task.wallet.controllers;
+import com.task.wallet.services.ValidatorParameters;
+import com.task.wallet.services.crud.ExportFormat;
+import com.task.wallet.services.crud.WalletExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import java.io.IOException;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/v1")
+public class ExportController {
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private final WalletExportService walletExportService;
+
+    @GetMapping("/wallet/export")
+    public void exportWallets(@RequestParam(defaultValue = "ndjson") String format,
+                              HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = ValidatorParameters.validateExportFormat(format);
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType(exportFormat == ExportFormat.CSV ? TEXT_CSV_VALUE : MediaType.APPLICATION_NDJSON_VALUE);
+        walletExportService.exportWallets(exportFormat, response.getOutputStream());
+    }
+}
@@ -0,0 +1,23 @@
+package com.task.wallet.controllers;
+import com.task.wallet.services.operations.OperationImportService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.io.IOException;
+import java.io.InputStream;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/v1")
+public class ImportController {
+    private final OperationImportService operationImportService;
+
+    @PostMapping(value = "/wallet/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importOperations(InputStream operationRequests, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        operationImportService.importOperations(operationRequests, response.getOutputStream());
+    }
+}
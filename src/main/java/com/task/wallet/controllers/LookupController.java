@@ -0,0 +1,23 @@
+package com.task.wallet.controllers;
+import com.task.wallet.services.crud.WalletLookupService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.io.IOException;
+import java.io.InputStream;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/v1")
+public class LookupController {
+    private final WalletLookupService walletLookupService;
+
+    @PostMapping(value = "/wallet/lookup", consumes = {MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public void lookupWallets(InputStream walletIds, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        walletLookupService.lookupWallets(walletIds, response.getOutputStream());
+    }
+}
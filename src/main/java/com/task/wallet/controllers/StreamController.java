@@ -0,0 +1,21 @@
+package com.task.wallet.controllers;
+import com.task.wallet.services.stream.BalanceStreamService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.util.List;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/api/v1")
+public class StreamController {
+    private final BalanceStreamService balanceStreamService;
+
+    @GetMapping("/wallet/stream")
+    public SseEmitter streamBalances(@RequestParam(name = "ids") List<String> walletIds) {
+        return balanceStreamService.subscribe(walletIds);
+    }
+}
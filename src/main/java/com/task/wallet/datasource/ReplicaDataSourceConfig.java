@@ -0,0 +1,59 @@
+package com.task.wallet.datasource;
+import com.task.wallet.services.WalletMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single pool of spring.datasource with the primary's pool and one pool per replica's URL.
+ * Every pool takes the credentials and the spring.datasource.hikari settings of the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "wallet.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                               Environment environment,
+                                               MeterRegistry meterRegistry,
+                                               WalletMetrics walletMetrics,
+                                               @Value("${wallet.datasource.replica.urls}") List<String> replicaUrls,
+                                               @Value("${wallet.datasource.replica.health-check-interval:5s}") Duration healthCheckInterval,
+                                               @Value("${wallet.datasource.replica.max-lag:5s}") Duration maxLag) {
+        Binder binder = Binder.get(environment);
+        DataSource primary = createPool("wallet-primary", dataSourceProperties.determineUrl(),
+                dataSourceProperties, binder, meterRegistry);
+        List<DataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (String replicaUrl : replicaUrls) {
+            if (!replicaUrl.isBlank()) {
+                replicas.add(createPool("wallet-replica-" + replicas.size(), replicaUrl.strip(),
+                        dataSourceProperties, binder, meterRegistry));
+            }
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, walletMetrics, healthCheckInterval, maxLag);
+    }
+
+    private static HikariDataSource createPool(String poolName, String url, DataSourceProperties dataSourceProperties,
+                                               Binder binder, MeterRegistry meterRegistry) {
+        HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
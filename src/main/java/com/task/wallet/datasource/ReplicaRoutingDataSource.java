@@ -0,0 +1,131 @@
+package com.task.wallet.datasource;
+import com.task.wallet.services.WalletMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections of read-only transactions to the replicas in turn and all others to the primary.
+ * The physical connection is taken at the first statement, when the transaction's read-only flag is already set.
+ * Replicas are checked every wallet.datasource.replica.health-check-interval: an unreachable one, or one that replays
+ * more than max-lag behind the primary, is skipped until a later check passes. Without a healthy replica,
+ * or when the chosen one refuses a connection, the read goes to the primary.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements DisposableBean {
+    private static final String LAG_QUERY = "SELECT COALESCE(CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() "
+            + "THEN 0 ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END, 0)::BIGINT";
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final WalletMetrics walletMetrics;
+    private final Duration healthCheckInterval;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile int[] healthyReplicas = new int[0];
+    private ScheduledExecutorService healthCheckExecutor;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, WalletMetrics walletMetrics,
+                                    Duration healthCheckInterval, Duration maxLag) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.walletMetrics = walletMetrics;
+        this.healthCheckInterval = healthCheckInterval;
+        this.maxLag = maxLag;
+        setTargetDataSource(primary);
+        setReadOnlyDataSource(new Replicas());
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        walletMetrics.registerHealthyReplicas(() -> healthyReplicas.length);
+    }
+
+    /**
+     * Replicas start as unhealthy, so reads go to the primary until the first check passes.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        healthCheckExecutor = Executors.newSingleThreadScheduledExecutor();
+        healthCheckExecutor.scheduleWithFixedDelay(this::checkReplicas,
+                0, healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (healthCheckExecutor != null) {
+            healthCheckExecutor.shutdownNow();
+        }
+        for (DataSource replica : replicas) {
+            close(replica);
+        }
+        close(primary);
+    }
+
+    void checkReplicas() {
+        int[] previous = healthyReplicas;
+        List<Integer> healthy = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = i;
+            boolean wasHealthy = Arrays.stream(previous).anyMatch(index -> index == replica);
+            try (Connection connection = replicas.get(i).getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                long lagMillis = resultSet.getLong(1);
+                if (lagMillis <= maxLag.toMillis()) {
+                    healthy.add(i);
+                } else if (wasHealthy) {
+                    log.warn("Replica {} is {} ms behind the primary and is skipped", i, lagMillis);
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (wasHealthy) {
+                    log.warn("Replica {} is not available and is skipped: {}", i, e.getMessage());
+                }
+            }
+        }
+        healthyReplicas = healthy.stream().mapToInt(Integer::intValue).toArray();
+        if (!Arrays.equals(previous, healthyReplicas)) {
+            log.info("{} of {} replicas are healthy", healthyReplicas.length, replicas.size());
+        }
+    }
+
+    private static void close(DataSource dataSource) throws Exception {
+        if (dataSource instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private class Replicas extends AbstractDataSource {
+        @Override
+        public Connection getConnection() throws SQLException {
+            int[] healthy = healthyReplicas;
+            if (healthy.length > 0) {
+                int replica = healthy[Math.floorMod(next.getAndIncrement(), healthy.length)];
+                try {
+                    Connection connection = replicas.get(replica).getConnection();
+                    walletMetrics.countReadRouting("replica");
+                    return connection;
+                } catch (SQLException e) {
+                    log.warn("Replica {} refused a connection, the read goes to the primary: {}", replica, e.getMessage());
+                }
+            }
+            walletMetrics.countReadRouting("primary");
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLFeatureNotSupportedException("Replicas use the credentials of spring.datasource");
+        }
+    }
+}
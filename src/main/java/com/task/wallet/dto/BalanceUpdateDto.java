@@ -0,0 +1,14 @@
+package com.task.wallet.dto;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.math.BigDecimal;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class BalanceUpdateDto {
+    private String walletId;
+    private BigDecimal balance;
+    private long sequence;
+}
@@ -0,0 +1,19 @@
+package com.task.wallet.dto;
+import com.task.wallet.services.operations.OperationType;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class OperationDto {
+    private long sequence;
+    private OperationType operationType;
+    private BigDecimal amount;
+    private BigDecimal balance;
+    private String counterpartyWalletId;
+    private Instant createdAt;
+}
@@ -0,0 +1,16 @@
+package com.task.wallet.dto;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@NoArgsConstructor
+@Getter
+@Setter
+public class OperationHistoryDto {
+    private String walletId;
+    private List<OperationDto> operations;
+    private Long nextBefore;
+}
@@ -8,4 +8,9 @@ public class OperationRequest {
     private String userId;
     private String operationType;
     private String amount;
+    /**
+     * Wallet credited by a TRANSFER, userId is the debited one.
+     */
+    private String targetUserId;
+    private String idempotencyKey;
 }
\ No newline at end of file
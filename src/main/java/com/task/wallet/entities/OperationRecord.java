@@ -0,0 +1,56 @@
+package com.task.wallet.entities;
+import com.task.wallet.services.operations.OperationType;
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Append-only ledger entry of an applied operation.
+ * Sequence is counted per wallet, so (wallet_id, sequence) orders the history of one wallet.
+ * Amount and balance are in Money's minor units. A TRANSFER is recorded on both wallets,
+ * its amount is negative on the debited side and the idempotency key is kept on that side only.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(OperationRecordId.class)
+@Table(name = "wallet_operations", uniqueConstraints = @UniqueConstraint(
+        name = "wallet_operations_wallet_idempotency_key_key", columnNames = {"wallet_id", "idempotency_key"}))
+public class OperationRecord implements Persistable<OperationRecordId> {
+    @Id
+    @Column(name = "wallet_id", columnDefinition = "UUID")
+    private UUID walletId;
+    @Id
+    @Column(name = "sequence", nullable = false)
+    private long sequence;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation_type", columnDefinition = "VARCHAR(20)", nullable = false)
+    private OperationType operationType;
+    @Column(name = "amount", nullable = false)
+    private long amount;
+    @Column(name = "balance", nullable = false)
+    private long balance;
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+    @Column(name = "idempotency_key", columnDefinition = "VARCHAR(64)")
+    private String idempotencyKey;
+    @Column(name = "counterparty_wallet_id", columnDefinition = "UUID")
+    private UUID counterpartyWalletId;
+
+    @Override
+    public OperationRecordId getId() {
+        return new OperationRecordId(walletId, sequence);
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,16 @@
+package com.task.wallet.entities;
+import java.io.Serializable;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperationRecordId implements Serializable {
+    private UUID walletId;
+    private long sequence;
+}
@@ -1,6 +1,6 @@
 package com.task.wallet.entities;
 import jakarta.persistence.*;
-import java.math.BigDecimal;
+import com.task.wallet.services.crud.WalletIdListener;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -12,16 +12,22 @@ import lombok.Setter;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@EntityListeners(WalletIdListener.class)
 @Table(name = "wallets")
 public class Wallet {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     @Column(name = "id", columnDefinition = "UUID")
     private UUID id;
-    @Column(name = "balance", columnDefinition = "NUMERIC")
-    private BigDecimal balance;
+    /**
+     * Balance in Money's minor units.
+     */
+    @Column(name = "balance", nullable = false)
+    private long balance;
     @Column(name = "owner_first_name", columnDefinition = "VARCHAR(50)", nullable = false)
     private String ownerFirstName;
     @Column(name = "owner_last_name", columnDefinition = "VARCHAR(50)", nullable = false)
     private String ownerLastName;
+    @Column(name = "operation_sequence", nullable = false)
+    private long operationSequence;
 }
\ No newline at end of file
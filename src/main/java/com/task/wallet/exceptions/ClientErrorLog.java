@@ -0,0 +1,44 @@
+package com.task.wallet.exceptions;
+import org.slf4j.Logger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs errors caused by clients, such as unknown wallets or malformed parameters, at most LINES_PER_SECOND times a second,
+ * so a flood of bad requests does not flood the log. The count of dropped lines is added to the next logged one.
+ */
+public final class ClientErrorLog {
+    private static final int LINES_PER_SECOND = 10;
+    private static final AtomicLong currentSecond = new AtomicLong();
+    private static final AtomicInteger linesInSecond = new AtomicInteger();
+    private static final AtomicLong suppressedLines = new AtomicLong();
+
+    private ClientErrorLog() {
+    }
+
+    public static void error(Logger log, String format, Object... arguments) {
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        long previousSecond = currentSecond.get();
+        if (second != previousSecond && currentSecond.compareAndSet(previousSecond, second)) {
+            linesInSecond.set(0);
+        }
+        if (linesInSecond.incrementAndGet() > LINES_PER_SECOND) {
+            suppressedLines.incrementAndGet();
+            return;
+        }
+        long suppressed = suppressedLines.getAndSet(0);
+        if (suppressed > 0) {
+            log.error(format + " ({} similar lines suppressed)", append(arguments, suppressed));
+        } else {
+            log.error(format, arguments);
+        }
+    }
+
+    private static Object[] append(Object[] arguments, Object argument) {
+        Object[] extended = new Object[arguments.length + 1];
+        System.arraycopy(arguments, 0, extended, 0, arguments.length);
+        extended[arguments.length] = argument;
+        return extended;
+    }
+}
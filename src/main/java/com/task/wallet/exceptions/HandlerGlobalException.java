@@ -1,5 +1,7 @@
 package com.task.wallet.exceptions;
 import com.task.wallet.dto.responses.ErrorResponse;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -10,16 +12,41 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 public class HandlerGlobalException {
     @ExceptionHandler
     public ResponseEntity<ErrorResponse> handleJsonErrors(HttpMessageNotReadableException ex) {
+        countError("malformed_json");
         return new ResponseEntity<>(new ErrorResponse(HttpStatus.BAD_REQUEST.value(), "Malformed JSON request"), HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler
     public ResponseEntity<ErrorResponse> handleWalletNotFound(WalletNotFoundException ex) {
+        countError("not_found");
         return new ResponseEntity<>(new ErrorResponse(HttpStatus.NOT_FOUND.value(), ex.getMessage()), HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler
     public ResponseEntity<ErrorResponse> handleInvalidParameterException(InvalidParameterException ex) {
+        countError("invalid_parameter");
         return new ResponseEntity<>(new ErrorResponse(HttpStatus.BAD_REQUEST.value(), ex.getMessage()), HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponse> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        countError("idempotency_conflict");
+        return new ResponseEntity<>(new ErrorResponse(HttpStatus.UNPROCESSABLE_ENTITY.value(), ex.getMessage()),
+                HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ErrorResponse> handleTooManyRequests(TooManyRequestsException ex) {
+        countError("too_many_requests");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse(HttpStatus.TOO_MANY_REQUESTS.value(), ex.getMessage()));
+    }
+
+    /**
+     * Uses the global registry, to which Spring Boot binds its own one, so the advice needs no extra beans in web slices.
+     */
+    private void countError(String error) {
+        Metrics.counter("wallet.api.errors", "error", error).increment();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.task.wallet.exceptions;
+
+/**
+ * Idempotency key of the request is already used by another operation of the wallet.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message, null, false, false);
+    }
+}
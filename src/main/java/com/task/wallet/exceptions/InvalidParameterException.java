@@ -1,8 +1,11 @@
 package com.task.wallet.exceptions;
 
+/**
+ * Caused by the client's request and mapped to an error response, so the stack trace is never used and is not filled.
+ */
 public class InvalidParameterException extends RuntimeException {
 
     public InvalidParameterException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
-}
\ No newline at end of file
+}
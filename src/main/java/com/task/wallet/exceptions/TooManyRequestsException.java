@@ -0,0 +1,15 @@
+package com.task.wallet.exceptions;
+import lombok.Getter;
+
+/**
+ * Operation is not admitted under the current load, the client may retry after retryAfterSeconds.
+ */
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
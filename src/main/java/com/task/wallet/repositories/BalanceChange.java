@@ -0,0 +1,10 @@
+package com.task.wallet.repositories;
+
+/**
+ * Balance in Money's minor units and operation's sequence of a wallet right after a single-statement update.
+ */
+public interface BalanceChange {
+    Long getBalance();
+
+    Long getOperationSequence();
+}
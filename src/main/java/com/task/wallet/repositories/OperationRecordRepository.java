@@ -0,0 +1,24 @@
+package com.task.wallet.repositories;
+import com.task.wallet.entities.OperationRecord;
+import com.task.wallet.entities.OperationRecordId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OperationRecordRepository extends JpaRepository<OperationRecord, OperationRecordId> {
+    /**
+     * Keyset page of wallet's history, newest first, served by the (wallet_id, sequence) primary key.
+     * Runs in its own read-only transaction, so with replicas enabled the page may lag behind the primary.
+     */
+    @Transactional(readOnly = true)
+    List<OperationRecord> findByWalletIdAndSequenceLessThanOrderBySequenceDesc(UUID walletId, long sequence, Limit limit);
+
+    OperationRecord findByWalletIdAndIdempotencyKey(UUID walletId, String idempotencyKey);
+
+    List<OperationRecord> findByWalletIdAndIdempotencyKeyIn(UUID walletId, Collection<String> idempotencyKeys);
+}
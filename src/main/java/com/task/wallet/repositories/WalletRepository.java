@@ -1,10 +1,70 @@
 package com.task.wallet.repositories;
 import com.task.wallet.entities.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface WalletRepository extends JpaRepository<Wallet, Integer> {
     Wallet findById(UUID userId);
-}
\ No newline at end of file
+
+    /**
+     * Same lookup in its own read-only transaction, so with replicas enabled it is served by a replica.
+     */
+    @Transactional(readOnly = true)
+    Wallet findReadOnlyById(UUID walletId);
+
+    List<Wallet> findByIdIn(Collection<UUID> walletIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.id = :id")
+    Wallet findByIdForUpdate(@Param("id") UUID walletId);
+
+    /**
+     * Locks the wallets in order of their ids, so concurrent transfers between the same wallets never deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.id IN :ids ORDER BY w.id")
+    List<Wallet> findAllByIdForUpdate(@Param("ids") Collection<UUID> walletIds);
+
+    /**
+     * Adds amount to the balance and takes the next operation's sequence in a single statement.
+     * Returns the change or null when the wallet does not exist or the balance would overflow BIGINT.
+     */
+    @Transactional
+    @Query(value = "UPDATE wallets SET balance = balance + :amount, operation_sequence = operation_sequence + 1 "
+            + "WHERE id = :id AND balance <= 9223372036854775807 - :amount "
+            + "RETURNING balance AS balance, operation_sequence AS operationSequence",
+            nativeQuery = true)
+    BalanceChange depositAmount(@Param("id") UUID walletId, @Param("amount") long amount);
+
+    /**
+     * Subtracts amount from the balance only when the balance covers it.
+     * Returns the change or null when the wallet does not exist or the balance is not enough.
+     */
+    @Transactional
+    @Query(value = "UPDATE wallets SET balance = balance - :amount, operation_sequence = operation_sequence + 1 "
+            + "WHERE id = :id AND balance >= :amount RETURNING balance AS balance, operation_sequence AS operationSequence",
+            nativeQuery = true)
+    BalanceChange withdrawAmount(@Param("id") UUID walletId, @Param("amount") long amount);
+
+    /**
+     * Writes the balance only when operation_sequence is still the read one. Every write path increments
+     * operation_sequence, so it serves as the wallet's version. Returns 0 when the wallet was changed in between.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE wallets SET balance = :balance, operation_sequence = operation_sequence + 1 "
+            + "WHERE id = :id AND operation_sequence = :sequence",
+            nativeQuery = true)
+    int compareAndSetBalance(@Param("id") UUID walletId, @Param("sequence") long expectedSequence,
+                             @Param("balance") long balance);
+}
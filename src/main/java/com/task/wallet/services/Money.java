@@ -0,0 +1,29 @@
+package com.task.wallet.services;
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point money: amounts and balances are longs of minor units with SCALE decimal places.
+ * BigDecimal appears only at the JSON edge, arithmetic on balances never allocates.
+ */
+public final class Money {
+    public static final int SCALE = 2;
+    public static final long MAX_BALANCE = Long.MAX_VALUE;
+
+    private Money() {
+    }
+
+    /**
+     * Exact conversion, throws ArithmeticException when the amount has more than SCALE decimal places or does not fit.
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public static boolean canDeposit(long balance, long amount) {
+        return balance <= MAX_BALANCE - amount;
+    }
+}
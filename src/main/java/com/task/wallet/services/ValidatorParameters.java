@@ -1,5 +1,7 @@
 package com.task.wallet.services;
+import com.task.wallet.exceptions.ClientErrorLog;
 import com.task.wallet.exceptions.InvalidParameterException;
+import com.task.wallet.services.crud.ExportFormat;
 import com.task.wallet.services.operations.OperationType;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
@@ -8,30 +10,141 @@ import java.util.UUID;
 
 @Slf4j
 public class ValidatorParameters {
+    public static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+    public static final int MAX_AMOUNT_SCALE = Money.SCALE;
+    public static final BigDecimal MAX_AMOUNT = new BigDecimal("1000000000000");
+    private static final int MAX_PLAIN_AMOUNT_DIGITS = 18;
+    private static final long NOT_PLAIN_AMOUNT = -1;
+    private static final long[] MAX_AMOUNT_UNITS = new long[MAX_AMOUNT_SCALE + 1];
+    private static final long[] MINOR_UNITS_MULTIPLIERS = new long[MAX_AMOUNT_SCALE + 1];
+
+    static {
+        for (int scale = 0; scale <= MAX_AMOUNT_SCALE; scale++) {
+            MAX_AMOUNT_UNITS[scale] = MAX_AMOUNT.movePointRight(scale).longValueExact();
+            MINOR_UNITS_MULTIPLIERS[scale] = BigDecimal.ONE.movePointRight(MAX_AMOUNT_SCALE - scale).longValueExact();
+        }
+    }
+
     public static UUID validateUserId(String userIdStr) {
         try {
             return UUID.fromString(userIdStr);
         } catch (IllegalArgumentException | NullPointerException | MethodArgumentTypeMismatchException e) {
-            log.error("Invalid id's format");
+            ClientErrorLog.error(log, "Invalid id's format");
             throw new InvalidParameterException("Invalid id's format");
         }
     }
 
+    public static UUID validateTransferTarget(UUID sourceId, String targetIdStr) {
+        UUID targetId = validateUserId(targetIdStr);
+        if (targetId.equals(sourceId)) {
+            ClientErrorLog.error(log, "Transfer's source and target are the same wallet");
+            throw new InvalidParameterException("Transfer's source and target must be different wallets");
+        }
+        return targetId;
+    }
+
     public static OperationType validateOperationType(String operationTypeStr) {
         try {
             return OperationType.valueOf(operationTypeStr.toUpperCase());
         } catch (IllegalArgumentException | NullPointerException e) {
-            log.error("Invalid operation's type");
+            ClientErrorLog.error(log, "Invalid operation's type");
             throw new InvalidParameterException("Invalid operation's type");
         }
     }
 
-    public static BigDecimal validateAmount(String amountStr) {
+    public static ExportFormat validateExportFormat(String exportFormatStr) {
         try {
-            return BigDecimal.valueOf(Float.parseFloat(amountStr));
+            return ExportFormat.valueOf(exportFormatStr.toUpperCase());
         } catch (IllegalArgumentException | NullPointerException e) {
-            log.error("Invalid amount of money's format");
-            throw new InvalidParameterException("Invalid amount of money's format");
+            ClientErrorLog.error(log, "Invalid export's format");
+            throw new InvalidParameterException("Invalid export's format");
+        }
+    }
+
+    /**
+     * Parses the amount exactly, without going through binary floating point, and returns it in Money's minor units.
+     * Plain strings like "1234.56" are parsed digit by digit into a long; other notations fall back to new BigDecimal(String).
+     */
+    public static long validateAmount(String amountStr) {
+        if (amountStr == null) {
+            throw invalidAmount("Invalid amount of money's format");
+        }
+        long minorUnits = parsePlainAmount(amountStr);
+        if (minorUnits != NOT_PLAIN_AMOUNT) {
+            return minorUnits;
+        }
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(amountStr.trim());
+        } catch (NumberFormatException e) {
+            throw invalidAmount("Invalid amount of money's format");
+        }
+        if (amount.signum() <= 0) {
+            throw invalidAmount("Amount of money must be positive");
+        }
+        if (amount.compareTo(MAX_AMOUNT) > 0) {
+            throw invalidAmount("Amount of money must not exceed " + MAX_AMOUNT);
+        }
+        if (amount.scale() > MAX_AMOUNT_SCALE) {
+            amount = amount.stripTrailingZeros();
+            if (amount.scale() > MAX_AMOUNT_SCALE) {
+                throw invalidAmount("Amount of money must have at most " + MAX_AMOUNT_SCALE + " decimal places");
+            }
+        }
+        return Money.toMinorUnits(amount);
+    }
+
+    /**
+     * Fast path for unsigned digits with an optional fraction of at most MAX_AMOUNT_SCALE digits.
+     * Returns NOT_PLAIN_AMOUNT when the string has any other shape, so the caller falls back to the exact general parser.
+     */
+    private static long parsePlainAmount(String amountStr) {
+        int length = amountStr.length();
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (int i = 0; i < length; i++) {
+            char c = amountStr.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_PLAIN_AMOUNT_DIGITS) {
+                    return NOT_PLAIN_AMOUNT;
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0 && i > 0 && i < length - 1) {
+                scale = 0;
+            } else {
+                return NOT_PLAIN_AMOUNT;
+            }
+        }
+        if (digits == 0 || scale > MAX_AMOUNT_SCALE) {
+            return NOT_PLAIN_AMOUNT;
+        }
+        scale = Math.max(scale, 0);
+        if (unscaled == 0) {
+            throw invalidAmount("Amount of money must be positive");
+        }
+        if (unscaled > MAX_AMOUNT_UNITS[scale]) {
+            throw invalidAmount("Amount of money must not exceed " + MAX_AMOUNT);
+        }
+        return unscaled * MINOR_UNITS_MULTIPLIERS[scale];
+    }
+
+    private static InvalidParameterException invalidAmount(String message) {
+        ClientErrorLog.error(log, message);
+        return new InvalidParameterException(message);
+    }
+
+    public static String validateIdempotencyKey(String idempotencyKeyStr) {
+        if (idempotencyKeyStr == null || idempotencyKeyStr.isBlank()) {
+            return null;
+        }
+        if (idempotencyKeyStr.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            ClientErrorLog.error(log, "Invalid idempotency key's length");
+            throw new InvalidParameterException("Idempotency key must be at most " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
         }
+        return idempotencyKeyStr;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,211 @@
+package com.task.wallet.services;
+import com.task.wallet.services.operations.OperationType;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Meters for every stage of an operation: queueing, database reads and writes, and the outcome.
+ * Connection pool wait time is published by Hikari itself as hikaricp.connections.acquire.
+ * Meters of the operation's path are registered once per combination of tags and reused.
+ */
+@Component
+public class WalletMetrics {
+    public static final String EXECUTOR_QUEUE = "executor";
+    public static final String WRITE_BEHIND_QUEUE = "write-behind";
+    private final MeterRegistry meterRegistry;
+    private final Meters<Timer> queueWaitTimers;
+    private final Meters<Timer> dbReadTimers;
+    private final Meters<Timer> dbWriteTimers;
+    private final Meters<Timer> operationTimers;
+    private final Meters<Counter> rejectedCounters;
+    private final Meters<Counter> optimisticConflictCounters;
+    private final Meters<Counter> admissionRejectionCounters;
+    private final Meters<Counter> readRoutingCounters;
+    private final Meters<Counter> streamUpdateCounters;
+    private final Counter streamDroppedCounter;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter idFilterRejectionCounter;
+
+    public WalletMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.queueWaitTimers = new Meters<>((queue, unused) -> Timer.builder("wallet.operations.queue.wait")
+                .description("Time an operation waited in the queue before it started")
+                .tag("queue", queue)
+                .register(meterRegistry));
+        this.dbReadTimers = new Meters<>((query, unused) -> Timer.builder("wallet.db.read")
+                .description("Latency of wallet's reads")
+                .tag("query", query)
+                .register(meterRegistry));
+        this.dbWriteTimers = new Meters<>((mode, operationType) -> Timer.builder("wallet.db.write")
+                .description("Latency of balance's writes including the ledger")
+                .tag("mode", mode)
+                .tag("operation.type", operationType)
+                .register(meterRegistry));
+        this.operationTimers = new Meters<>((operationType, outcome) -> Timer.builder("wallet.operations")
+                .description("Latency of an operation from validation to response")
+                .tag("operation.type", operationType)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        this.rejectedCounters = new Meters<>((operationType, reason) -> Counter.builder("wallet.operations.rejected")
+                .description("Operations that were not applied")
+                .tag("operation.type", operationType)
+                .tag("reason", reason)
+                .register(meterRegistry));
+        this.optimisticConflictCounters = new Meters<>((operationType, outcome) ->
+                Counter.builder("wallet.operations.optimistic.conflicts")
+                        .description("Optimistic writes that found the wallet changed concurrently")
+                        .tag("operation.type", operationType)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+        this.admissionRejectionCounters = new Meters<>((reason, unused) -> Counter.builder("wallet.admission.rejected")
+                .description("Operations rejected with 429 before processing")
+                .tag("reason", reason)
+                .register(meterRegistry));
+        this.readRoutingCounters = new Meters<>((target, unused) -> Counter.builder("wallet.datasource.reads")
+                .description("Connections of read-only transactions by the database they were sent to")
+                .tag("target", target)
+                .register(meterRegistry));
+        this.streamUpdateCounters = new Meters<>((outcome, unused) -> Counter.builder("wallet.stream.updates")
+                .description("Balances pushed to the streams")
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        this.streamDroppedCounter = Counter.builder("wallet.stream.dropped")
+                .description("Streams dropped because a write did not finish in time")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("wallet.operations.batch.size")
+                .description("Operations written with one balance update")
+                .register(meterRegistry);
+        this.idFilterRejectionCounter = Counter.builder("wallet.id-filter.rejected")
+                .description("Lookups of unknown wallets answered by the id filter without a query")
+                .register(meterRegistry);
+    }
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void registerQueueDepth(String queue, Supplier<Number> depth) {
+        Gauge.builder("wallet.operations.queue.depth", depth)
+                .description("Operations waiting in the queue")
+                .tag("queue", queue)
+                .register(meterRegistry);
+    }
+
+    public void recordQueueWait(String queue, long startNanos) {
+        queueWaitTimers.get(queue, "").record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDbRead(String query, long startNanos) {
+        dbReadTimers.get(query, "").record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDbWrite(String mode, String operationType, long startNanos) {
+        dbWriteTimers.get(mode, operationType).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBatchSize(int size) {
+        batchSizeSummary.record(size);
+    }
+
+    public void recordOperation(OperationType operationType, String outcome, long startNanos) {
+        operationTimers.get(String.valueOf(operationType), outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countRejected(OperationType operationType, String reason) {
+        rejectedCounters.get(String.valueOf(operationType), reason).increment();
+    }
+
+    /**
+     * Outcome is retry when the conflicting operation is attempted again and give_up when the retries are exhausted.
+     */
+    public void countOptimisticConflict(OperationType operationType, String outcome) {
+        optimisticConflictCounters.get(String.valueOf(operationType), outcome).increment();
+    }
+
+    public void countIdFilterRejection() {
+        idFilterRejectionCounter.increment();
+    }
+
+    public void registerAdmissionLimit(Supplier<Number> limit, Supplier<Number> inFlight) {
+        Gauge.builder("wallet.admission.limit", limit)
+                .description("Operations allowed in flight at once")
+                .register(meterRegistry);
+        Gauge.builder("wallet.admission.in-flight", inFlight)
+                .description("Operations in flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reason is wallet_rate when the wallet's token bucket is empty and concurrency when the in-flight limit is reached.
+     */
+    public void countAdmissionRejection(String reason) {
+        admissionRejectionCounters.get(reason, "").increment();
+    }
+
+    public void registerHealthyReplicas(Supplier<Number> healthy) {
+        Gauge.builder("wallet.datasource.replicas.healthy", healthy)
+                .description("Replicas that read-only transactions are sent to")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Target is replica, or primary when no replica is healthy or the chosen one refused a connection.
+     */
+    public void countReadRouting(String target) {
+        readRoutingCounters.get(target, "").increment();
+    }
+
+    public void registerStreamSubscribers(Supplier<Number> subscribers) {
+        Gauge.builder("wallet.stream.subscribers", subscribers)
+                .description("Open streams of balances")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Outcome is sent, or coalesced when a newer balance replaced one that was not sent yet.
+     */
+    public void countStreamUpdate(String outcome) {
+        streamUpdateCounters.get(outcome, "").increment();
+    }
+
+    public void countStreamDropped() {
+        streamDroppedCounter.increment();
+    }
+
+    public void monitorCache(Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+    /**
+     * Meters by up to two tag values. A hit reads two maps without allocating, a miss registers the meter once.
+     */
+    private static final class Meters<M> {
+        private final ConcurrentMap<String, ConcurrentMap<String, M>> meters = new ConcurrentHashMap<>();
+        private final BiFunction<String, String, M> factory;
+
+        private Meters(BiFunction<String, String, M> factory) {
+            this.factory = factory;
+        }
+
+        private M get(String first, String second) {
+            ConcurrentMap<String, M> byFirst = meters.get(first);
+            if (byFirst == null) {
+                byFirst = meters.computeIfAbsent(first, key -> new ConcurrentHashMap<>());
+            }
+            M meter = byFirst.get(second);
+            return meter != null ? meter : byFirst.computeIfAbsent(second, key -> factory.apply(first, key));
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.task.wallet.services.crud;
+import com.task.wallet.dto.OperationHistoryDto;
 import com.task.wallet.dto.WalletDto;
 
 public interface CRUDService {
     WalletDto getDataWallet(String userId);
-}
\ No newline at end of file
+
+    OperationHistoryDto getWalletOperations(String userId, Long before, int limit);
+}
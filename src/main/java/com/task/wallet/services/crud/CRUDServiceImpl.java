@@ -1,36 +1,88 @@
 package com.task.wallet.services.crud;
+import com.task.wallet.dto.OperationDto;
+import com.task.wallet.dto.OperationHistoryDto;
 import com.task.wallet.dto.WalletDto;
+import com.task.wallet.entities.OperationRecord;
 import com.task.wallet.entities.Wallet;
+import com.task.wallet.exceptions.ClientErrorLog;
+import com.task.wallet.exceptions.InvalidParameterException;
 import com.task.wallet.exceptions.WalletNotFoundException;
-import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.services.Money;
 import com.task.wallet.services.ValidatorParameters;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
+/**
+ * Reads run in read-only transactions opened by the repository only when the database is queried, so with
+ * wallet.datasource.replica.enabled they are served by a replica, while cache hits and id filter rejections
+ * take no connection. WalletCache reads recently written wallets from the primary.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CRUDServiceImpl implements CRUDService {
-private final WalletRepository walletRepository;
+    private final WalletCache walletCache;
+    private final OperationRecordRepository operationRecordRepository;
+    @Value("${wallet.operations.history.max-limit:1000}")
+    private int maxHistoryLimit;
 
     @Override
     public WalletDto getDataWallet(String userId) {
         WalletDto walletDto = new WalletDto();
         UUID walletId = ValidatorParameters.validateUserId(userId);
-        Wallet wallet = walletRepository.findById(walletId);
+        Wallet wallet = walletCache.findById(walletId);
         if (wallet != null) {
            walletDto.setId(String.valueOf(walletId));
-           walletDto.setBalance(wallet.getBalance().setScale(2, RoundingMode.HALF_UP));
+           walletDto.setBalance(Money.toDecimal(wallet.getBalance()));
            walletDto.setOwnerFirstName(wallet.getOwnerFirstName());
            walletDto.setOwnerLastName(wallet.getOwnerLastName());
            log.debug("Wallet found for user ID: {}", userId);
             return walletDto;
         } else {
-            log.error("Wallet not found for user ID: {}", userId);
+            ClientErrorLog.error(log, "Wallet not found for user ID: {}", userId);
             throw new WalletNotFoundException("Wallet with id: " + userId + " is not found");
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public OperationHistoryDto getWalletOperations(String userId, Long before, int limit) {
+        UUID walletId = ValidatorParameters.validateUserId(userId);
+        if (limit <= 0 || limit > maxHistoryLimit) {
+            ClientErrorLog.error(log, "Invalid limit of operation's history");
+            throw new InvalidParameterException("Limit of operation's history must be from 1 to " + maxHistoryLimit);
+        }
+        if (walletCache.findById(walletId) == null) {
+            ClientErrorLog.error(log, "Wallet not found for user ID: {}", userId);
+            throw new WalletNotFoundException("Wallet with id: " + userId + " is not found");
+        }
+        List<OperationRecord> records = operationRecordRepository.findByWalletIdAndSequenceLessThanOrderBySequenceDesc(
+                walletId, before != null ? before : Long.MAX_VALUE, Limit.of(limit));
+        List<OperationDto> operations = new ArrayList<>(records.size());
+        for (OperationRecord record : records) {
+            OperationDto operationDto = new OperationDto();
+            operationDto.setSequence(record.getSequence());
+            operationDto.setOperationType(record.getOperationType());
+            operationDto.setAmount(Money.toDecimal(record.getAmount()));
+            operationDto.setBalance(Money.toDecimal(record.getBalance()));
+            if (record.getCounterpartyWalletId() != null) {
+                operationDto.setCounterpartyWalletId(String.valueOf(record.getCounterpartyWalletId()));
+            }
+            operationDto.setCreatedAt(record.getCreatedAt());
+            operations.add(operationDto);
+        }
+        OperationHistoryDto historyDto = new OperationHistoryDto();
+        historyDto.setWalletId(String.valueOf(walletId));
+        historyDto.setOperations(operations);
+        if (records.size() == limit) {
+            historyDto.setNextBefore(records.get(records.size() - 1).getSequence());
+        }
+        return historyDto;
+    }
+}
@@ -0,0 +1,6 @@
+package com.task.wallet.services.crud;
+
+public enum ExportFormat {
+    CSV,
+    NDJSON
+}
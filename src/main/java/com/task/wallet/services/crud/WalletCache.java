@@ -0,0 +1,109 @@
+package com.task.wallet.services.crud;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.services.WalletMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Bounded read-through cache of wallets for the read path.
+ * Entries are invalidated after every successful operation, hit and miss counts are published as cache metrics.
+ * Ids that the id filter definitely does not contain are reported as absent without a query.
+ * A miss is loaded in a read-only transaction, so with replicas enabled it is served by a replica, unless the wallet
+ * was invalidated within wallet.cache.primary-read-window: a replica may not have replayed that write yet, so such
+ * a wallet is read from the primary and a client reads its own writes.
+ */
+@Component
+public class WalletCache {
+    private final WalletRepository walletRepository;
+    private final WalletMetrics walletMetrics;
+    private final WalletIdFilter walletIdFilter;
+    private final Cache<UUID, Wallet> cache;
+    private final Cache<UUID, Boolean> recentlyWritten;
+
+    public WalletCache(WalletRepository walletRepository,
+                       WalletMetrics walletMetrics,
+                       WalletIdFilter walletIdFilter,
+                       @Value("${wallet.cache.maximum-size:10000}") long maximumSize,
+                       @Value("${wallet.cache.expire-after-write:30s}") Duration expireAfterWrite,
+                       @Value("${wallet.cache.primary-read-window:10s}") Duration primaryReadWindow) {
+        this.walletRepository = walletRepository;
+        this.walletMetrics = walletMetrics;
+        this.walletIdFilter = walletIdFilter;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.recentlyWritten = Caffeine.newBuilder()
+                .expireAfterWrite(primaryReadWindow)
+                .build();
+        walletMetrics.monitorCache(cache, "wallets");
+    }
+
+    public Wallet findById(UUID walletId) {
+        if (!mightExist(walletId)) {
+            return null;
+        }
+        return cache.get(walletId, this::loadWallet);
+    }
+
+    public boolean mightExist(UUID walletId) {
+        if (walletIdFilter.mightContain(walletId)) {
+            return true;
+        }
+        walletMetrics.countIdFilterRejection();
+        return false;
+    }
+
+    private Wallet loadWallet(UUID walletId) {
+        long start = walletMetrics.start();
+        try {
+            return recentlyWritten.getIfPresent(walletId) != null
+                    ? walletRepository.findById(walletId)
+                    : walletRepository.findReadOnlyById(walletId);
+        } finally {
+            walletMetrics.recordDbRead("findById", start);
+        }
+    }
+
+    /**
+     * Returns the found wallets by id. Cached wallets are taken from the cache, the rest are read by one query
+     * and are not cached, so a bulk scan over many wallets does not evict the hot ones.
+     */
+    public Map<UUID, Wallet> findAllById(Collection<UUID> walletIds) {
+        Map<UUID, Wallet> wallets = new HashMap<>(cache.getAllPresent(walletIds));
+        List<UUID> missing = new ArrayList<>(walletIds.size() - wallets.size());
+        for (UUID walletId : walletIds) {
+            if (!wallets.containsKey(walletId) && mightExist(walletId)) {
+                missing.add(walletId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return wallets;
+        }
+        long start = walletMetrics.start();
+        try {
+            for (Wallet wallet : walletRepository.findByIdIn(missing)) {
+                wallets.put(wallet.getId(), wallet);
+            }
+        } finally {
+            walletMetrics.recordDbRead("findByIdIn", start);
+        }
+        return wallets;
+    }
+
+    public void invalidate(UUID walletId) {
+        recentlyWritten.put(walletId, Boolean.TRUE);
+        cache.invalidate(walletId);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,7 @@
+package com.task.wallet.services.crud;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface WalletExportService {
+    void exportWallets(ExportFormat exportFormat, OutputStream wallets) throws IOException;
+}
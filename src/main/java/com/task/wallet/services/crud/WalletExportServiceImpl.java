@@ -0,0 +1,97 @@
+package com.task.wallet.services.crud;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.task.wallet.dto.WalletDto;
+import com.task.wallet.services.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import javax.sql.DataSource;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streams every wallet straight from a forward-only cursor to the output, one CSV or NDJSON line per row.
+ * Postgres keeps the cursor open only inside a transaction, rows are fetched by wallet.export.fetch-size
+ * and are not kept after they are written, so memory does not depend on the size of the table.
+ */
+@Slf4j
+@Service
+public class WalletExportServiceImpl implements WalletExportService {
+    private static final String SELECT_WALLETS =
+            "SELECT id, balance, owner_first_name, owner_last_name FROM wallets ORDER BY id";
+    private static final String CSV_HEADER = "id,balance,owner_first_name,owner_last_name\n";
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectWriter walletWriter;
+
+    public WalletExportServiceImpl(DataSource dataSource,
+                                   ObjectMapper objectMapper,
+                                   @Value("${wallet.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.walletWriter = objectMapper.writerFor(WalletDto.class);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportWallets(ExportFormat exportFormat, OutputStream wallets) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(wallets, StandardCharsets.UTF_8));
+        if (exportFormat == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        long[] rows = new long[1];
+        try {
+            jdbcTemplate.query(SELECT_WALLETS, resultSet -> {
+                try {
+                    writeRow(exportFormat, resultSet, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        log.debug("Export of {} wallets is completed", rows[0]);
+    }
+
+    private void writeRow(ExportFormat exportFormat, ResultSet resultSet, Writer writer) throws SQLException, IOException {
+        String id = resultSet.getString("id");
+        BigDecimal balance = Money.toDecimal(resultSet.getLong("balance"));
+        String ownerFirstName = resultSet.getString("owner_first_name");
+        String ownerLastName = resultSet.getString("owner_last_name");
+        if (exportFormat == ExportFormat.CSV) {
+            writer.write(id);
+            writer.write(',');
+            writer.write(balance.toPlainString());
+            writer.write(',');
+            writer.write(csvField(ownerFirstName));
+            writer.write(',');
+            writer.write(csvField(ownerLastName));
+        } else {
+            WalletDto walletDto = new WalletDto();
+            walletDto.setId(id);
+            walletDto.setBalance(balance);
+            walletDto.setOwnerFirstName(ownerFirstName);
+            walletDto.setOwnerLastName(ownerLastName);
+            writer.write(walletWriter.writeValueAsString(walletDto));
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Quotes the field as RFC 4180 requires when it contains a separator, a quote or a line break.
+     */
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,168 @@
+package com.task.wallet.services.crud;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of existing wallets' ids: an id it does not contain definitely does not exist, so the lookup is skipped.
+ * The filter is rebuilt from the wallets table after startup and every wallet.id-filter.refresh-interval, which also picks
+ * up wallets created on other nodes. Wallets created through JPA and by WalletSeeder's COPY are added at once.
+ * Until the first build, or when disabled, every id is reported as possibly existing.
+ */
+@Slf4j
+@Component
+public class WalletIdFilter {
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final long expectedWallets;
+    private final double falsePositiveRate;
+    private final Duration refreshInterval;
+    private volatile BloomFilter current;
+    private BloomFilter building;
+    private long loadedWallets;
+    private ScheduledExecutorService refreshExecutor;
+
+    public WalletIdFilter(DataSource dataSource,
+                          @Value("${wallet.id-filter.enabled:true}") boolean enabled,
+                          @Value("${wallet.id-filter.expected-wallets:1000000}") long expectedWallets,
+                          @Value("${wallet.id-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                          @Value("${wallet.id-filter.refresh-interval:1m}") Duration refreshInterval) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.expectedWallets = expectedWallets;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor();
+        refreshExecutor.scheduleWithFixedDelay(this::rebuild, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    public boolean mightContain(UUID walletId) {
+        BloomFilter filter = current;
+        return filter == null || filter.mightContain(walletId);
+    }
+
+    public synchronized void add(UUID walletId) {
+        if (current != null) {
+            current.add(walletId);
+        }
+        if (building != null) {
+            building.add(walletId);
+        }
+    }
+
+    /**
+     * Sized for twice the wallets of the previous build, so the false positive rate holds while the table grows.
+     * Wallets added during the scan go to both filters.
+     */
+    void rebuild() {
+        long start = System.nanoTime();
+        BloomFilter filter = new BloomFilter(Math.max(expectedWallets, 2 * loadedWallets), falsePositiveRate);
+        synchronized (this) {
+            building = filter;
+        }
+        long wallets = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(10_000);
+                try (ResultSet resultSet = statement.executeQuery("SELECT id FROM wallets")) {
+                    while (resultSet.next()) {
+                        filter.add(resultSet.getObject(1, UUID.class));
+                        wallets++;
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                building = null;
+            }
+            log.error("Filter of wallet's ids is not rebuilt and will be retried: {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            current = filter;
+            building = null;
+        }
+        loadedWallets = wallets;
+        log.info("Filter of {} wallet's ids is built in {} ms", wallets,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(long expectedItems, double falsePositiveRate) {
+            long optimalBits = (long) Math.ceil(-expectedItems * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+            this.bitCount = bits.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedItems * Math.log(2)));
+        }
+
+        void add(UUID id) {
+            long hash1 = mix(id.getMostSignificantBits());
+            long hash2 = mix(id.getLeastSignificantBits());
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word;
+                do {
+                    word = bits.get(index);
+                } while ((word & mask) == 0 && !bits.compareAndSet(index, word, word | mask));
+            }
+        }
+
+        boolean mightContain(UUID id) {
+            long hash1 = mix(id.getMostSignificantBits());
+            long hash2 = mix(id.getLeastSignificantBits());
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Finalizer of MurmurHash3, spreads ids that are not random UUIDs over all bits.
+         */
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            value ^= value >>> 33;
+            value *= 0xc4ceb9fe1a85ec53L;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.task.wallet.services.crud;
+import com.task.wallet.entities.Wallet;
+import jakarta.persistence.PostPersist;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Adds every wallet created through JPA to the id filter. Created by Hibernate through Spring's bean container.
+ */
+@RequiredArgsConstructor
+public class WalletIdListener {
+    private final WalletIdFilter walletIdFilter;
+
+    @PostPersist
+    public void walletCreated(Wallet wallet) {
+        walletIdFilter.add(wallet.getId());
+    }
+}
@@ -0,0 +1,8 @@
+package com.task.wallet.services.crud;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface WalletLookupService {
+    void lookupWallets(InputStream walletIds, OutputStream wallets) throws IOException;
+}
@@ -0,0 +1,100 @@
+package com.task.wallet.services.crud;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.task.wallet.dto.WalletDto;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.exceptions.InvalidParameterException;
+import com.task.wallet.services.Money;
+import com.task.wallet.services.ValidatorParameters;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads one wallet's id per line and writes one newline-delimited WalletDto per non-blank line in input order.
+ * Ids are resolved in chunks by one IN query each, an unknown or malformed id gets a WalletDto with the error only.
+ * Only one chunk is held in memory, the next chunk is read after the previous one is flushed.
+ */
+@Slf4j
+@Service
+public class WalletLookupServiceImpl implements WalletLookupService {
+    private final WalletCache walletCache;
+    private final ObjectWriter walletWriter;
+    private final int chunkSize;
+
+    public WalletLookupServiceImpl(WalletCache walletCache,
+                                   ObjectMapper objectMapper,
+                                   @Value("${wallet.lookup.chunk-size:1000}") int chunkSize) {
+        this.walletCache = walletCache;
+        this.walletWriter = objectMapper.writerFor(WalletDto.class);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void lookupWallets(InputStream walletIds, OutputStream wallets) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(walletIds, StandardCharsets.UTF_8));
+        List<String> lines = new ArrayList<>(chunkSize);
+        long count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            count++;
+            lines.add(line.strip());
+            if (lines.size() == chunkSize) {
+                writeChunk(lines, wallets);
+            }
+        }
+        writeChunk(lines, wallets);
+        log.debug("Lookup of {} wallets is completed", count);
+    }
+
+    private void writeChunk(List<String> lines, OutputStream wallets) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            ids.add(parseId(line));
+        }
+        Set<UUID> validIds = new HashSet<>(ids);
+        validIds.remove(null);
+        Map<UUID, Wallet> found = walletCache.findAllById(validIds);
+        for (int i = 0; i < lines.size(); i++) {
+            wallets.write(walletWriter.writeValueAsBytes(toDto(lines.get(i), ids.get(i), found)));
+            wallets.write('\n');
+        }
+        wallets.flush();
+        lines.clear();
+    }
+
+    private UUID parseId(String line) {
+        try {
+            return ValidatorParameters.validateUserId(line);
+        } catch (InvalidParameterException e) {
+            return null;
+        }
+    }
+
+    private WalletDto toDto(String line, UUID walletId, Map<UUID, Wallet> found) {
+        WalletDto walletDto = new WalletDto();
+        walletDto.setId(line);
+        if (walletId == null) {
+            walletDto.setError("Invalid id's format");
+            return walletDto;
+        }
+        Wallet wallet = found.get(walletId);
+        if (wallet == null) {
+            walletDto.setError("Wallet with id: " + line + " is not found");
+            return walletDto;
+        }
+        walletDto.setBalance(Money.toDecimal(wallet.getBalance()));
+        walletDto.setOwnerFirstName(wallet.getOwnerFirstName());
+        walletDto.setOwnerLastName(wallet.getOwnerLastName());
+        return walletDto;
+    }
+}
@@ -0,0 +1,153 @@
+package com.task.wallet.services.operations;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.task.wallet.exceptions.TooManyRequestsException;
+import com.task.wallet.services.WalletMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits operations before they take a thread, a lock or a connection, and rejects the rest at once with 429.
+ * When wallet.admission.per-wallet.rate is positive, every wallet has a token bucket of that many operations a second
+ * with a burst of wallet.admission.per-wallet.burst, by default wallets are not limited.
+ * Operations in flight are limited by an AIMD limit: it grows by one per limit's worth of operations faster than
+ * wallet.admission.target-latency and shrinks by a tenth, at most once per target latency, when an operation is slower.
+ * The limit is kept in fixed point in an atomic, so completing operations do not serialize on a monitor.
+ */
+@Component
+public class AdmissionControl {
+    private static final double DECREASE_RATIO = 0.9;
+    private static final long SCALE = 1L << 16;
+    private final WalletMetrics walletMetrics;
+    private final boolean enabled;
+    private final long minScaledLimit;
+    private final long maxScaledLimit;
+    private final long targetLatencyNanos;
+    private final boolean limitedPerWallet;
+    private final double tokensPerNano;
+    private final double burst;
+    private final Cache<UUID, TokenBucket> tokenBuckets;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong scaledLimit;
+    private final AtomicLong lastDecreaseNanos = new AtomicLong(System.nanoTime());
+
+    public AdmissionControl(WalletMetrics walletMetrics,
+                            @Value("${wallet.admission.enabled:true}") boolean enabled,
+                            @Value("${wallet.admission.initial-limit:200}") int initialLimit,
+                            @Value("${wallet.admission.min-limit:20}") int minLimit,
+                            @Value("${wallet.admission.max-limit:2000}") int maxLimit,
+                            @Value("${wallet.admission.target-latency:100ms}") Duration targetLatency,
+                            @Value("${wallet.admission.per-wallet.rate:0}") double ratePerSecond,
+                            @Value("${wallet.admission.per-wallet.burst:2000}") double burst,
+                            @Value("${wallet.admission.per-wallet.max-tracked:100000}") long maxTrackedWallets) {
+        this.walletMetrics = walletMetrics;
+        this.enabled = enabled;
+        this.scaledLimit = new AtomicLong(initialLimit * SCALE);
+        this.minScaledLimit = minLimit * SCALE;
+        this.maxScaledLimit = maxLimit * SCALE;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.limitedPerWallet = ratePerSecond > 0;
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokenBuckets = Caffeine.newBuilder()
+                .maximumSize(maxTrackedWallets)
+                .expireAfterAccess(Duration.ofMinutes(1))
+                .build();
+        walletMetrics.registerAdmissionLimit(this::limit, inFlight::get);
+    }
+
+    /**
+     * Takes a token of the wallet, when walletId is not null and wallets are limited, and a place in flight. The permit must be closed.
+     */
+    public Permit admit(UUID walletId) {
+        if (!enabled) {
+            return new Permit(false);
+        }
+        long now = System.nanoTime();
+        if (walletId != null && limitedPerWallet) {
+            long waitNanos = tokenBuckets.get(walletId, id -> new TokenBucket(burst, now)).take(tokensPerNano, burst, now);
+            if (waitNanos > 0) {
+                walletMetrics.countAdmissionRejection("wallet_rate");
+                throw new TooManyRequestsException("Too many operations for wallet with id: " + walletId,
+                        Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+            }
+        }
+        if (inFlight.incrementAndGet() > limit()) {
+            inFlight.decrementAndGet();
+            walletMetrics.countAdmissionRejection("concurrency");
+            throw new TooManyRequestsException("Service is overloaded, retry later", 1);
+        }
+        return new Permit(true);
+    }
+
+    int limit() {
+        return (int) (Math.min(scaledLimit.get(), maxScaledLimit) / SCALE);
+    }
+
+    /**
+     * Only the thread that moves lastDecreaseNanos shrinks the limit. Increases are plain additions of 1 / limit,
+     * concurrent ones may overshoot the maximum a little, which limit() clamps and the next decrease drops.
+     */
+    private void onComplete(long latencyNanos, long now) {
+        if (latencyNanos > targetLatencyNanos) {
+            long lastDecrease = lastDecreaseNanos.get();
+            if (now - lastDecrease > targetLatencyNanos && lastDecreaseNanos.compareAndSet(lastDecrease, now)) {
+                scaledLimit.updateAndGet(current ->
+                        Math.max(minScaledLimit, (long) (Math.min(current, maxScaledLimit) * DECREASE_RATIO)));
+            }
+        } else {
+            long current = scaledLimit.get();
+            if (current < maxScaledLimit) {
+                scaledLimit.addAndGet(Math.max(1, SCALE * SCALE / current));
+            }
+        }
+    }
+
+    public final class Permit implements AutoCloseable {
+        private final boolean counted;
+        private final long startNanos = System.nanoTime();
+
+        private Permit(boolean counted) {
+            this.counted = counted;
+        }
+
+        @Override
+        public void close() {
+            if (counted) {
+                inFlight.decrementAndGet();
+                long now = System.nanoTime();
+                onComplete(now - startNanos, now);
+            }
+        }
+    }
+
+    private static final class TokenBucket {
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+        }
+
+        /**
+         * Returns 0 when a token is taken, otherwise the nanoseconds until the next token.
+         */
+        synchronized long take(double tokensPerNano, double burst, long now) {
+            if (now > refilledAt) {
+                tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+                refilledAt = now;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.entities.OperationRecord;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.repositories.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes journaled operations of the sharded engine to the wallets table and the ledger.
+ * Records whose sequence is already stored for the wallet are skipped, so a batch can be written again after a crash.
+ * All wallets of the batch are locked by one statement, their updates and the ledger's inserts go out as JDBC batches.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "wallet.operations.engine", havingValue = "SHARDED")
+public class BalanceSnapshotWriter {
+    private final WalletRepository walletRepository;
+    private final OperationRecordRepository operationRecordRepository;
+
+    /**
+     * Records of one wallet must be in the order of their sequence.
+     */
+    @Transactional
+    public void write(List<OperationRecord> records) {
+        Map<UUID, List<OperationRecord>> recordsByWallet = new LinkedHashMap<>();
+        for (OperationRecord record : records) {
+            recordsByWallet.computeIfAbsent(record.getWalletId(), id -> new ArrayList<>()).add(record);
+        }
+        Map<UUID, Wallet> wallets = new HashMap<>();
+        for (Wallet wallet : walletRepository.findAllByIdForUpdate(recordsByWallet.keySet())) {
+            wallets.put(wallet.getId(), wallet);
+        }
+        List<OperationRecord> newRecords = new ArrayList<>(records.size());
+        for (Map.Entry<UUID, List<OperationRecord>> walletRecords : recordsByWallet.entrySet()) {
+            Wallet wallet = wallets.get(walletRecords.getKey());
+            if (wallet == null) {
+                log.error("Wallet with id: {} is not found, its journaled operations are dropped", walletRecords.getKey());
+                continue;
+            }
+            OperationRecord last = null;
+            for (OperationRecord record : walletRecords.getValue()) {
+                if (record.getSequence() > wallet.getOperationSequence()) {
+                    newRecords.add(record);
+                    last = record;
+                }
+            }
+            if (last != null) {
+                wallet.setBalance(last.getBalance());
+                wallet.setOperationSequence(last.getSequence());
+            }
+        }
+        operationRecordRepository.saveAll(newRecords);
+        log.debug("Snapshot of {} journaled operations is written", newRecords.size());
+    }
+}
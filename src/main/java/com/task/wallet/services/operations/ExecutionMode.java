@@ -0,0 +1,6 @@
+package com.task.wallet.services.operations;
+
+public enum ExecutionMode {
+    CALLER,
+    POOLED
+}
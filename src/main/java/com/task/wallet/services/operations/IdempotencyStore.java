@@ -0,0 +1,116 @@
+package com.task.wallet.services.operations;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.entities.OperationRecord;
+import com.task.wallet.exceptions.ClientErrorLog;
+import com.task.wallet.exceptions.IdempotencyConflictException;
+import com.task.wallet.repositories.OperationRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Responses of operations by wallet and idempotency key.
+ * Recent applied operations are kept in a bounded in-memory cache and are also found in the ledger,
+ * whose unique key on (wallet_id, idempotency_key) guards against concurrent duplicates. Neither lookup touches
+ * the wallets table. Rejected operations are not remembered, so a retry after a rejection is applied anew on any node.
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+    private final OperationRecordRepository operationRecordRepository;
+    private final Cache<Key, ProcessedOperation> operations;
+
+    public IdempotencyStore(OperationRecordRepository operationRecordRepository,
+                            @Value("${wallet.operations.idempotency.maximum-size:100000}") long maximumSize,
+                            @Value("${wallet.operations.idempotency.expire-after-write:24h}") Duration expireAfterWrite) {
+        this.operationRecordRepository = operationRecordRepository;
+        this.operations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    /**
+     * Response of the operation already applied under the same wallet and key, or null if there is none.
+     * Throws IdempotencyConflictException if the key was used for an operation with another type, amount or target.
+     */
+    public OperationResponse find(WalletOperation operation) {
+        if (operation.getIdempotencyKey() == null) {
+            return null;
+        }
+        Key key = new Key(operation.getWalletId(), operation.getIdempotencyKey());
+        ProcessedOperation processedOperation = operations.getIfPresent(key);
+        if (processedOperation == null) {
+            OperationRecord operationRecord = operationRecordRepository.findByWalletIdAndIdempotencyKey(
+                    operation.getWalletId(), operation.getIdempotencyKey());
+            if (operationRecord == null) {
+                return null;
+            }
+            processedOperation = ProcessedOperation.of(operationRecord);
+            operations.put(key, processedOperation);
+        }
+        return checkedResponse(operation, processedOperation);
+    }
+
+    /**
+     * Like find, but looks only at the remembered operations and never waits for the database.
+     */
+    public OperationResponse findRemembered(WalletOperation operation) {
+        if (operation.getIdempotencyKey() == null) {
+            return null;
+        }
+        ProcessedOperation processedOperation =
+                operations.getIfPresent(new Key(operation.getWalletId(), operation.getIdempotencyKey()));
+        return processedOperation == null ? null : checkedResponse(operation, processedOperation);
+    }
+
+    /**
+     * Response of the processed operation if the given one asks for the same operation.
+     */
+    OperationResponse checkedResponse(WalletOperation operation, ProcessedOperation processedOperation) {
+        if (!processedOperation.matches(operation)) {
+            ClientErrorLog.error(log, "Idempotency key: {} is reused for another operation", operation.getIdempotencyKey());
+            throw new IdempotencyConflictException("Idempotency key: " + operation.getIdempotencyKey()
+                    + " is already used for another operation of the wallet");
+        }
+        return processedOperation.getResponse();
+    }
+
+    public void remember(WalletOperation operation, OperationResponse operationResponse) {
+        if (operation.getIdempotencyKey() != null && operationResponse.isResult()) {
+            operations.put(new Key(operation.getWalletId(), operation.getIdempotencyKey()),
+                    ProcessedOperation.of(operation, operationResponse));
+        }
+    }
+
+    private static final class Key {
+        private final UUID walletId;
+        private final String idempotencyKey;
+
+        private Key(UUID walletId, String idempotencyKey) {
+            this.walletId = walletId;
+            this.idempotencyKey = idempotencyKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return walletId.equals(other.walletId) && idempotencyKey.equals(other.idempotencyKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(walletId, idempotencyKey);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.task.wallet.services.operations;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface OperationImportService {
+void importOperations(InputStream operationRequests, OutputStream operationResponses) throws IOException;
+}
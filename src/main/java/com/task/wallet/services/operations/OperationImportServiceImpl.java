@@ -0,0 +1,100 @@
+package com.task.wallet.services.operations;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.exceptions.TooManyRequestsException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads newline-delimited operation requests and writes one newline-delimited response per non-blank line.
+ * Only one chunk of lines is held in memory, the next chunk is read after the results of the previous one are flushed.
+ * The response is already committed with 200 after the first chunk, so a chunk that is not admitted under load
+ * gets a failed line per operation instead of a 429 status, and the client resubmits those lines.
+ */
+@Slf4j
+@Service
+public class OperationImportServiceImpl implements OperationImportService {
+    private final OperationService operationService;
+    private final ObjectReader requestReader;
+    private final ObjectWriter responseWriter;
+    private final int chunkSize;
+
+    public OperationImportServiceImpl(OperationService operationService,
+                                      ObjectMapper objectMapper,
+                                      @Value("${wallet.operations.import.chunk-size:1000}") int chunkSize) {
+        this.operationService = operationService;
+        this.requestReader = objectMapper.readerFor(OperationRequest.class);
+        this.responseWriter = objectMapper.writerFor(OperationResponse.class);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void importOperations(InputStream operationRequests, OutputStream operationResponses) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(operationRequests, StandardCharsets.UTF_8));
+        List<OperationRequest> requests = new ArrayList<>(chunkSize);
+        List<OperationResponse> malformedLines = new ArrayList<>(chunkSize);
+        long lines = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            lines++;
+            try {
+                requests.add(requestReader.readValue(line));
+                malformedLines.add(null);
+            } catch (JsonProcessingException e) {
+                requests.add(null);
+                malformedLines.add(OperationResponses.failure(null, "Malformed JSON request"));
+            }
+            if (requests.size() == chunkSize) {
+                writeChunk(requests, malformedLines, operationResponses);
+            }
+        }
+        writeChunk(requests, malformedLines, operationResponses);
+        log.debug("Import of {} operations is completed", lines);
+    }
+
+    private void writeChunk(List<OperationRequest> requests, List<OperationResponse> malformedLines,
+                            OutputStream operationResponses) throws IOException {
+        if (requests.isEmpty()) {
+            return;
+        }
+        List<OperationRequest> parsedRequests = new ArrayList<>(requests.size());
+        for (OperationRequest request : requests) {
+            if (request != null) {
+                parsedRequests.add(request);
+            }
+        }
+        Iterator<OperationResponse> processed = processChunk(parsedRequests).iterator();
+        for (OperationResponse malformedLine : malformedLines) {
+            OperationResponse response = malformedLine != null ? malformedLine : processed.next();
+            operationResponses.write(responseWriter.writeValueAsBytes(response));
+            operationResponses.write('\n');
+        }
+        operationResponses.flush();
+        requests.clear();
+        malformedLines.clear();
+    }
+
+    private List<OperationResponse> processChunk(List<OperationRequest> requests) {
+        try {
+            return operationService.processOperations(requests);
+        } catch (TooManyRequestsException e) {
+            log.warn("Chunk of {} imported operations is not admitted: {}", requests.size(), e.getMessage());
+            return Collections.nCopies(requests.size(), OperationResponses.failure(null,
+                    e.getMessage() + ", retry after " + e.getRetryAfterSeconds() + " seconds"));
+        }
+    }
+}
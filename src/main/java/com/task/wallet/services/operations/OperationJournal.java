@@ -0,0 +1,202 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.entities.OperationRecord;
+import lombok.extern.slf4j.Slf4j;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of one shard, written into memory-mapped segment files of a fixed size.
+ * Each record is its payload's length, the payload's CRC32 and the payload; a zero length marks the end of written data.
+ * Only the shard's thread appends, force() makes every record appended so far durable.
+ */
+@Slf4j
+class OperationJournal {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private final Path directory;
+    private final int segmentSize;
+    private final CRC32 crc32 = new CRC32();
+    private ByteBuffer payload = ByteBuffer.allocate(256);
+    private long segment = -1;
+    private MappedByteBuffer buffer;
+    private long deletedBefore;
+
+    OperationJournal(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        openNextSegment();
+    }
+
+    /**
+     * Appends the record and returns the index of the segment it was written to.
+     */
+    long append(OperationRecord record) throws IOException {
+        encode(record);
+        int length = payload.remaining();
+        if (HEADER_SIZE + length > segmentSize) {
+            throw new IOException("Journal's record of " + length + " bytes does not fit into a segment");
+        }
+        if (buffer.remaining() < HEADER_SIZE + length) {
+            buffer.force();
+            openNextSegment();
+        }
+        crc32.reset();
+        crc32.update(payload.duplicate());
+        buffer.putInt(length);
+        buffer.putInt((int) crc32.getValue());
+        buffer.put(payload);
+        return segment;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Deletes the segments whose records are all written to the database.
+     * Called by the snapshot's thread only, never for the segment that is currently appended to.
+     */
+    void deleteSegmentsBefore(long segment) throws IOException {
+        for (; deletedBefore < segment; deletedBefore++) {
+            Files.deleteIfExists(segmentPath(directory, deletedBefore));
+        }
+    }
+
+    /**
+     * Reads the records of every segment in the directory in order of writing.
+     * Stops at the first torn or corrupted record, since everything after it was never acknowledged.
+     */
+    static List<OperationRecord> readAll(Path directory) throws IOException {
+        List<OperationRecord> records = new ArrayList<>();
+        CRC32 crc32 = new CRC32();
+        for (Path segmentPath : listSegments(directory)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segmentPath));
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || length > buffer.remaining()) {
+                    log.warn("Journal's segment {} ends with a torn record", segmentPath);
+                    return records;
+                }
+                ByteBuffer recordPayload = buffer.slice(buffer.position(), length);
+                crc32.reset();
+                crc32.update(recordPayload.duplicate());
+                if ((int) crc32.getValue() != checksum) {
+                    log.warn("Journal's segment {} contains a corrupted record", segmentPath);
+                    return records;
+                }
+                records.add(decode(recordPayload));
+                buffer.position(buffer.position() + length);
+            }
+        }
+        return records;
+    }
+
+    static void deleteAll(Path directory) throws IOException {
+        for (Path segmentPath : listSegments(directory)) {
+            Files.delete(segmentPath);
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        segment++;
+        try (FileChannel channel = FileChannel.open(segmentPath(directory, segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private void encode(OperationRecord record) {
+        byte[] idempotencyKey = record.getIdempotencyKey() == null
+                ? null
+                : record.getIdempotencyKey().getBytes(StandardCharsets.UTF_8);
+        int length = 2 * Long.BYTES + Long.BYTES + 1
+                + 2 * Long.BYTES
+                + Long.BYTES + Integer.BYTES
+                + Short.BYTES + (idempotencyKey == null ? 0 : idempotencyKey.length)
+                + 1 + (record.getCounterpartyWalletId() == null ? 0 : 2 * Long.BYTES);
+        if (payload.capacity() < length) {
+            payload = ByteBuffer.allocate(Math.max(length, payload.capacity() * 2));
+        }
+        payload.clear();
+        payload.putLong(record.getWalletId().getMostSignificantBits());
+        payload.putLong(record.getWalletId().getLeastSignificantBits());
+        payload.putLong(record.getSequence());
+        payload.put((byte) record.getOperationType().ordinal());
+        payload.putLong(record.getAmount());
+        payload.putLong(record.getBalance());
+        payload.putLong(record.getCreatedAt().getEpochSecond());
+        payload.putInt(record.getCreatedAt().getNano());
+        if (idempotencyKey == null) {
+            payload.putShort((short) -1);
+        } else {
+            payload.putShort((short) idempotencyKey.length);
+            payload.put(idempotencyKey);
+        }
+        if (record.getCounterpartyWalletId() == null) {
+            payload.put((byte) 0);
+        } else {
+            payload.put((byte) 1);
+            payload.putLong(record.getCounterpartyWalletId().getMostSignificantBits());
+            payload.putLong(record.getCounterpartyWalletId().getLeastSignificantBits());
+        }
+        payload.flip();
+    }
+
+    private static OperationRecord decode(ByteBuffer payload) {
+        UUID walletId = new UUID(payload.getLong(), payload.getLong());
+        long sequence = payload.getLong();
+        OperationType operationType = OperationType.values()[payload.get()];
+        long amount = payload.getLong();
+        long balance = payload.getLong();
+        Instant createdAt = Instant.ofEpochSecond(payload.getLong(), payload.getInt());
+        short idempotencyKeyLength = payload.getShort();
+        String idempotencyKey = null;
+        if (idempotencyKeyLength >= 0) {
+            byte[] bytes = new byte[idempotencyKeyLength];
+            payload.get(bytes);
+            idempotencyKey = new String(bytes, StandardCharsets.UTF_8);
+        }
+        UUID counterpartyWalletId = payload.get() == 0 ? null : new UUID(payload.getLong(), payload.getLong());
+        return new OperationRecord(walletId, sequence, operationType, amount, balance, createdAt,
+                idempotencyKey, counterpartyWalletId);
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        segments.sort((first, second) -> Long.compare(segmentIndex(first), segmentIndex(second)));
+        return segments;
+    }
+
+    private static long segmentIndex(Path segmentPath) {
+        String fileName = segmentPath.getFileName().toString();
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+    }
+}
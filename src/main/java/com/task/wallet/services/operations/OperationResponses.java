@@ -0,0 +1,41 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.responses.OperationResponse;
+
+final class OperationResponses {
+
+    private OperationResponses() {
+    }
+
+    static OperationResponse success(OperationType operationType) {
+        OperationResponse operationResponse = new OperationResponse();
+        operationResponse.setResult(true);
+        operationResponse.setSuccess("Successful");
+        operationResponse.setOperationType(operationType);
+        return operationResponse;
+    }
+
+    static OperationResponse notEnoughBalance() {
+        OperationResponse operationResponse = new OperationResponse();
+        operationResponse.setResult(false);
+        operationResponse.setError("Balance of wallet is not enough for withdraw operation");
+        operationResponse.setSuccess("Unsuccessful");
+        return operationResponse;
+    }
+
+    static OperationResponse balanceOverflow() {
+        OperationResponse operationResponse = new OperationResponse();
+        operationResponse.setResult(false);
+        operationResponse.setError("Balance of wallet would exceed its maximum after deposit operation");
+        operationResponse.setSuccess("Unsuccessful");
+        return operationResponse;
+    }
+
+    static OperationResponse failure(OperationType operationType, String error) {
+        OperationResponse operationResponse = new OperationResponse();
+        operationResponse.setResult(false);
+        operationResponse.setError(error);
+        operationResponse.setSuccess("Unsuccessful");
+        operationResponse.setOperationType(operationType);
+        return operationResponse;
+    }
+}
@@ -1,7 +1,26 @@
 package com.task.wallet.services.operations;
 import com.task.wallet.dto.requests.OperationRequest;
 import com.task.wallet.dto.responses.OperationResponse;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public interface OperationService {
-OperationResponse processOperation(OperationRequest operationRequest);
-}
\ No newline at end of file
+/**
+ * Client errors that are known before the operation is queued are thrown at once, the rest complete the future.
+ */
+CompletableFuture<OperationResponse> processOperationAsync(OperationRequest operationRequest);
+
+default OperationResponse processOperation(OperationRequest operationRequest) {
+    try {
+        return processOperationAsync(operationRequest).join();
+    } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+        }
+        throw e;
+    }
+}
+
+List<OperationResponse> processOperations(List<OperationRequest> operationRequests);
+}
@@ -1,104 +1,379 @@
 package com.task.wallet.services.operations;
 import com.task.wallet.dto.requests.OperationRequest;
 import com.task.wallet.dto.responses.OperationResponse;
-import com.task.wallet.entities.Wallet;
+import com.task.wallet.exceptions.ClientErrorLog;
+import com.task.wallet.exceptions.IdempotencyConflictException;
 import com.task.wallet.exceptions.InvalidParameterException;
+import com.task.wallet.exceptions.TooManyRequestsException;
 import com.task.wallet.exceptions.WalletNotFoundException;
-import com.task.wallet.repositories.WalletRepository;
-import com.task.wallet.services.ValidatorParameters;
-import lombok.RequiredArgsConstructor;
+import com.task.wallet.services.WalletMetrics;
+import com.task.wallet.services.crud.WalletCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
+@ConditionalOnProperty(name = "wallet.operations.engine", havingValue = "JPA", matchIfMissing = true)
 public class OperationServiceImpl implements OperationService {
-    private final WalletRepository walletRepository;
-    private final ExecutorService executorService = new ThreadPoolExecutor(
-            10,
-            100,
-            60L, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(1000),
-            new ThreadPoolExecutor.CallerRunsPolicy());
+    private final WalletBalanceWriter walletBalanceWriter;
+    private final WalletLockStripes walletLockStripes;
+    private final WalletOperationBatcher walletOperationBatcher;
+    private final WalletCache walletCache;
+    private final IdempotencyStore idempotencyStore;
+    private final WalletMetrics walletMetrics;
+    private final AdmissionControl admissionControl;
+    private final WriteMode writeMode;
+    private final int maxBatchRequestSize;
+    private final ExecutionMode executionMode;
+    private final int corePoolSize;
+    private final int maximumPoolSize;
+    private final int queueCapacity;
+    private final int maxOptimisticRetries;
+    private final Duration optimisticBackoff;
+    private ExecutorService executorService;
+
+    public OperationServiceImpl(WalletBalanceWriter walletBalanceWriter,
+                                WalletLockStripes walletLockStripes,
+                                WalletOperationBatcher walletOperationBatcher,
+                                WalletCache walletCache,
+                                IdempotencyStore idempotencyStore,
+                                WalletMetrics walletMetrics,
+                                AdmissionControl admissionControl,
+                                @Value("${wallet.operations.write-mode:BATCHED}") WriteMode writeMode,
+                                @Value("${wallet.operations.batch.max-size:100000}") int maxBatchRequestSize,
+                                @Value("${wallet.operations.execution-mode:CALLER}") ExecutionMode executionMode,
+                                @Value("${wallet.operations.pool.core-size:10}") int corePoolSize,
+                                @Value("${wallet.operations.pool.max-size:100}") int maximumPoolSize,
+                                @Value("${wallet.operations.pool.queue-capacity:1000}") int queueCapacity,
+                                @Value("${wallet.operations.optimistic.max-retries:5}") int maxOptimisticRetries,
+                                @Value("${wallet.operations.optimistic.backoff:1ms}") Duration optimisticBackoff) {
+        this.walletBalanceWriter = walletBalanceWriter;
+        this.walletLockStripes = walletLockStripes;
+        this.walletOperationBatcher = walletOperationBatcher;
+        this.walletCache = walletCache;
+        this.idempotencyStore = idempotencyStore;
+        this.walletMetrics = walletMetrics;
+        this.admissionControl = admissionControl;
+        this.writeMode = writeMode;
+        this.maxBatchRequestSize = maxBatchRequestSize;
+        this.executionMode = executionMode;
+        this.corePoolSize = corePoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        this.queueCapacity = queueCapacity;
+        this.maxOptimisticRetries = maxOptimisticRetries;
+        this.optimisticBackoff = optimisticBackoff;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (executionMode == ExecutionMode.POOLED) {
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                    corePoolSize,
+                    maximumPoolSize,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    new ThreadPoolExecutor.AbortPolicy());
+            walletMetrics.registerQueueDepth(WalletMetrics.EXECUTOR_QUEUE, () -> threadPoolExecutor.getQueue().size());
+            executorService = threadPoolExecutor;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * The admission permit is held until the returned future completes, not until the request's thread returns.
+     */
+    @Override
+    public CompletableFuture<OperationResponse> processOperationAsync(OperationRequest operationRequest) {
+        WalletOperation operation = WalletOperation.fromRequest(operationRequest);
+        checkWalletsMightExist(operation);
+        AdmissionControl.Permit permit = admissionControl.admit(operation.getWalletId());
+        CompletableFuture<OperationResponse> response;
+        try {
+            response = executionMode == ExecutionMode.POOLED
+                    ? submitToPool(operation)
+                    : processSingleOperation(operation);
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+        return response.whenComplete((operationResponse, e) -> permit.close());
+    }
+
+    /**
+     * A full queue rejects the operation with 429 instead of running it on the request's thread.
+     */
+    private CompletableFuture<OperationResponse> submitToPool(WalletOperation operation) {
+        long submittedAt = walletMetrics.start();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                walletMetrics.recordQueueWait(WalletMetrics.EXECUTOR_QUEUE, submittedAt);
+                return processSingleOperation(operation);
+            }, executorService).thenCompose(response -> response);
+        } catch (RejectedExecutionException e) {
+            walletMetrics.countAdmissionRejection("queue_full");
+            throw new TooManyRequestsException("Queue of operations is full, retry later", 1);
+        }
+    }
 
     @Override
-    public OperationResponse processOperation(OperationRequest operationRequest) {
+    public List<OperationResponse> processOperations(List<OperationRequest> operationRequests) {
+        if (operationRequests == null || operationRequests.size() > maxBatchRequestSize) {
+            ClientErrorLog.error(log, "Invalid size of operation's batch");
+            throw new InvalidParameterException("Size of operation's batch must be from 0 to " + maxBatchRequestSize);
+        }
+        AdmissionControl.Permit permit = admissionControl.admit(null);
+        try {
+            return applyOperations(operationRequests);
+        } finally {
+            permit.close();
+        }
+    }
+
+    /**
+     * Batches are admitted as one operation in flight and are not limited per wallet, so an import is not throttled.
+     * Only the remembered responses are looked up per item: the batcher finds the keys already in the ledger
+     * with one query per wallet's batch, and a transfer looks up its key under the rows' locks.
+     */
+    private List<OperationResponse> applyOperations(List<OperationRequest> operationRequests) {
+        List<OperationResponse> responses = new ArrayList<>(Collections.nCopies(operationRequests.size(), null));
+        List<WalletOperation> operations = new ArrayList<>(Collections.nCopies(operationRequests.size(), null));
+        List<Future<OperationResponse>> futures = new ArrayList<>(Collections.nCopies(operationRequests.size(), null));
+        for (int i = 0; i < operationRequests.size(); i++) {
+            try {
+                operations.set(i, WalletOperation.fromRequest(operationRequests.get(i)));
+                checkWalletsMightExist(operations.get(i));
+                OperationResponse previousResponse = idempotencyStore.findRemembered(operations.get(i));
+                if (previousResponse != null) {
+                    responses.set(i, previousResponse);
+                    continue;
+                }
+                futures.set(i, walletOperationBatcher.submit(operations.get(i)));
+            } catch (InvalidParameterException e) {
+                responses.set(i, OperationResponses.failure(null, e.getMessage()));
+            } catch (WalletNotFoundException e) {
+                walletMetrics.countRejected(operations.get(i).getOperationType(), "not_found");
+                responses.set(i, OperationResponses.failure(operations.get(i).getOperationType(), e.getMessage()));
+            } catch (IdempotencyConflictException e) {
+                walletMetrics.countRejected(operations.get(i).getOperationType(), "idempotency_conflict");
+                responses.set(i, OperationResponses.failure(operations.get(i).getOperationType(), e.getMessage()));
+            }
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            if (futures.get(i) == null) {
+                continue;
+            }
+            WalletOperation operation = operations.get(i);
+            try {
+                OperationResponse operationResponse = awaitResponse(futures.get(i));
+                operationResponse.setOperationType(operation.getOperationType());
+                if (operationResponse.isResult()) {
+                    invalidateCache(operation);
+                } else {
+                    walletMetrics.countRejected(operation.getOperationType(), "insufficient_balance");
+                }
+                idempotencyStore.remember(operation, operationResponse);
+                responses.set(i, operationResponse);
+            } catch (DataIntegrityViolationException e) {
+                responses.set(i, previousResponseOrFailure(operation, e));
+            } catch (WalletNotFoundException | InvalidParameterException e) {
+                walletMetrics.countRejected(operation.getOperationType(),
+                        e instanceof WalletNotFoundException ? "not_found" : "invalid_parameter");
+                responses.set(i, OperationResponses.failure(operation.getOperationType(), e.getMessage()));
+            } catch (IdempotencyConflictException e) {
+                walletMetrics.countRejected(operation.getOperationType(), "idempotency_conflict");
+                responses.set(i, OperationResponses.failure(operation.getOperationType(), e.getMessage()));
+            }
+        }
+        return responses;
+    }
+
+    private OperationResponse awaitResponse(Future<OperationResponse> future) {
         try {
-            Future<OperationResponse> future = executorService.submit(() -> processSingleOperation(operationRequest));
             return future.get();
         } catch (InterruptedException e) {
             log.error("Operation was interrupted");
-            throw new RuntimeException();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
         } catch (ExecutionException e) {
-            log.error("Unexpected error during operation processing: {}", e.getMessage());
             if (e.getCause() instanceof WalletNotFoundException) {
                 throw (WalletNotFoundException) e.getCause();
             }
             if (e.getCause() instanceof InvalidParameterException) {
                 throw (InvalidParameterException) e.getCause();
             }
+            if (e.getCause() instanceof IdempotencyConflictException) {
+                throw (IdempotencyConflictException) e.getCause();
+            }
+            if (e.getCause() instanceof DataIntegrityViolationException) {
+                throw (DataIntegrityViolationException) e.getCause();
+            }
             log.error("Unexpected error during operation processing: {}", e.getMessage());
             throw new RuntimeException(e);
         }
     }
 
-    private OperationResponse processSingleOperation(OperationRequest operationRequest) {
-        UUID userId = ValidatorParameters.validateUserId(operationRequest.getUserId());
-        OperationType operationType = ValidatorParameters.validateOperationType(operationRequest.getOperationType());
-        BigDecimal amount = ValidatorParameters.validateAmount(operationRequest.getAmount());
-        Wallet wallet = walletRepository.findById(userId);
-        if (wallet == null) {
-            log.error("Wallet not found for user ID: {}", userId);
-            throw new WalletNotFoundException("Wallet with id: " + userId + " is not found");
+    /**
+     * In BATCHED mode the returned future completes on the batcher's thread, so the caller's thread is not held
+     * while the batch is written. The other write modes complete it before returning.
+     */
+    private CompletableFuture<OperationResponse> processSingleOperation(WalletOperation operation) {
+        OperationResponse previousResponse = idempotencyStore.find(operation);
+        if (previousResponse != null) {
+            log.debug("Operation with idempotency key: {} is already processed", operation.getIdempotencyKey());
+            return CompletableFuture.completedFuture(previousResponse);
         }
-        synchronized (wallet) {
-            return switch (operationType) {
-                case DEPOSIT -> deposit(wallet, amount);
-                case WITHDRAW -> withdraw(wallet, amount);
+        long start = walletMetrics.start();
+        CompletableFuture<OperationResponse> applied;
+        try {
+            applied = switch (writeMode) {
+                case BATCHED -> applyBatched(operation);
+                case OPTIMISTIC -> CompletableFuture.completedFuture(applyOptimistically(operation));
+                case ATOMIC -> CompletableFuture.completedFuture(applyOperation(operation));
             };
+        } catch (RuntimeException e) {
+            applied = CompletableFuture.failedFuture(e);
         }
+        return applied.handle((operationResponse, e) -> {
+            if (e != null) {
+                walletMetrics.recordOperation(operation.getOperationType(), "error", start);
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            }
+            return completeOperation(operation, operationResponse, start);
+        });
     }
 
-    private OperationResponse withdraw(Wallet wallet, BigDecimal amount) {
-        if (!checkBalance(wallet.getBalance(), amount)) {
-           return buildOperationResponseWhenNotEnoughBalanceForOperation();
+    private OperationResponse completeOperation(WalletOperation operation, OperationResponse operationResponse, long start) {
+        if (operationResponse.isResult()) {
+            invalidateCache(operation);
+            walletMetrics.recordOperation(operation.getOperationType(), "success", start);
+        } else {
+            walletMetrics.countRejected(operation.getOperationType(), "insufficient_balance");
+            walletMetrics.recordOperation(operation.getOperationType(), "rejected", start);
         }
-        wallet.setBalance(wallet.getBalance().subtract(amount));
-        walletRepository.save(wallet);
-        walletRepository.flush();
-        log.debug("Withdraw is completed successfully for user's id: {}", wallet.getId());
-        return buildSuccessResponse(OperationType.WITHDRAW, amount);
+        idempotencyStore.remember(operation, operationResponse);
+        return operationResponse;
     }
 
-    private boolean checkBalance(BigDecimal balance, BigDecimal amount) {
-        return balance.compareTo(amount) >= 0;
+    /**
+     * Rejects the operation without a query when the id filter knows that a wallet of the operation does not exist.
+     */
+    private void checkWalletsMightExist(WalletOperation operation) {
+        for (UUID walletId : new UUID[]{operation.getWalletId(), operation.getTargetWalletId()}) {
+            if (walletId != null && !walletCache.mightExist(walletId)) {
+                ClientErrorLog.error(log, "Wallet not found for user ID: {}", walletId);
+                throw new WalletNotFoundException("Wallet with id: " + walletId + " is not found");
+            }
+        }
     }
 
-    private OperationResponse deposit(Wallet wallet, BigDecimal amount) {
-        wallet.setBalance(wallet.getBalance().add(amount));
-        walletRepository.save(wallet);
-        walletRepository.flush();
-        log.debug("Deposit is completed successfully for user's id: {}", wallet.getId());
-        return buildSuccessResponse(OperationType.DEPOSIT, amount);
+    private void invalidateCache(WalletOperation operation) {
+        walletCache.invalidate(operation.getWalletId());
+        if (operation.getTargetWalletId() != null) {
+            walletCache.invalidate(operation.getTargetWalletId());
+        }
     }
 
-    private OperationResponse buildSuccessResponse(OperationType operationType, BigDecimal amount) {
-        OperationResponse operationResponse = new OperationResponse();
-        operationResponse.setResult(true);
-        operationResponse.setSuccess("Successful");
-        operationResponse.setOperationType(operationType);
-        return operationResponse;
+    private CompletableFuture<OperationResponse> applyBatched(WalletOperation operation) {
+        return walletOperationBatcher.submit(operation).exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof DataIntegrityViolationException) {
+                return previousResponse(operation, (DataIntegrityViolationException) cause);
+            }
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        });
     }
 
-    private OperationResponse buildOperationResponseWhenNotEnoughBalanceForOperation() {
-        OperationResponse operationResponse = new OperationResponse();
-        operationResponse.setResult(false);
-        operationResponse.setError("Balance of wallet is not enough for withdraw operation");
-        operationResponse.setSuccess("Unsuccessful");
-        return operationResponse;
+    private OperationResponse applyOperation(WalletOperation operation) {
+        Lock lock = walletLockStripes.lockFor(operation.getWalletId());
+        lock.lock();
+        long start = walletMetrics.start();
+        try {
+            OperationResponse operationResponse = walletBalanceWriter.apply(operation);
+            walletMetrics.recordDbWrite("atomic", String.valueOf(operation.getOperationType()), start);
+            return operationResponse;
+        } catch (DataIntegrityViolationException e) {
+            return previousResponse(operation, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retries an operation that lost the race for its wallet after a random pause of up to backoff * 2^attempt.
+     * When the retries are exhausted the operation is applied by the atomic update under the wallet's lock stripe.
+     */
+    private OperationResponse applyOptimistically(WalletOperation operation) {
+        long start = walletMetrics.start();
+        for (int attempt = 0; attempt <= maxOptimisticRetries; attempt++) {
+            try {
+                OperationResponse operationResponse = walletBalanceWriter.applyOptimistic(operation);
+                walletMetrics.recordDbWrite("optimistic", String.valueOf(operation.getOperationType()), start);
+                return operationResponse;
+            } catch (DataIntegrityViolationException e) {
+                return previousResponse(operation, e);
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt == maxOptimisticRetries) {
+                    break;
+                }
+                walletMetrics.countOptimisticConflict(operation.getOperationType(), "retry");
+                long maxPauseNanos = optimisticBackoff.toNanos() << Math.min(attempt, 16);
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(maxPauseNanos + 1));
+            }
+        }
+        walletMetrics.countOptimisticConflict(operation.getOperationType(), "give_up");
+        log.debug("Optimistic retries are exhausted for user's id: {}", operation.getWalletId());
+        return applyOperation(operation);
+    }
+
+    /**
+     * A unique violation of the wallet's idempotency key means a concurrent duplicate was applied first,
+     * its response is returned.
+     */
+    /**
+     * Unlike previousResponse, fails only the batch's item whose write violated a constraint other than its key.
+     */
+    private OperationResponse previousResponseOrFailure(WalletOperation operation, DataIntegrityViolationException e) {
+        OperationResponse previousResponse;
+        try {
+            previousResponse = idempotencyStore.find(operation);
+        } catch (IdempotencyConflictException conflict) {
+            walletMetrics.countRejected(operation.getOperationType(), "idempotency_conflict");
+            return OperationResponses.failure(operation.getOperationType(), conflict.getMessage());
+        }
+        if (previousResponse != null) {
+            return previousResponse;
+        }
+        log.error("Operation for user's id: {} violates an integrity constraint: {}",
+                operation.getWalletId(), e.getMostSpecificCause().getMessage());
+        walletMetrics.countRejected(operation.getOperationType(), "integrity_violation");
+        return OperationResponses.failure(operation.getOperationType(), "Operation conflicts with a concurrent write");
+    }
+
+    private OperationResponse previousResponse(WalletOperation operation, DataIntegrityViolationException e) {
+        OperationResponse previousResponse = idempotencyStore.find(operation);
+        if (previousResponse == null) {
+            throw e;
+        }
+        return previousResponse;
     }
 }
\ No newline at end of file
@@ -2,5 +2,6 @@ package com.task.wallet.services.operations;
 
 public enum OperationType {
     DEPOSIT,
-    WITHDRAW
+    WITHDRAW,
+    TRANSFER
 }
\ No newline at end of file
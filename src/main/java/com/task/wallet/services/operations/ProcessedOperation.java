@@ -0,0 +1,48 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.entities.OperationRecord;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Type, amount and target of an operation already processed under an idempotency key, with its response.
+ * A repeated request with the same key gets the response only if it asks for the same operation.
+ */
+final class ProcessedOperation {
+    private final OperationType operationType;
+    private final long amount;
+    private final UUID targetWalletId;
+    private final OperationResponse response;
+
+    private ProcessedOperation(OperationType operationType, long amount, UUID targetWalletId, OperationResponse response) {
+        this.operationType = operationType;
+        this.amount = amount;
+        this.targetWalletId = targetWalletId;
+        this.response = response;
+    }
+
+    static ProcessedOperation of(WalletOperation operation, OperationResponse response) {
+        return new ProcessedOperation(operation.getOperationType(), operation.getAmount(),
+                operation.getTargetWalletId(), response);
+    }
+
+    /**
+     * The key of a TRANSFER is kept on its debited side, whose amount is negative and whose counterparty is the target.
+     */
+    static ProcessedOperation of(OperationRecord record) {
+        OperationType operationType = record.getOperationType();
+        return new ProcessedOperation(operationType, Math.abs(record.getAmount()),
+                operationType == OperationType.TRANSFER ? record.getCounterpartyWalletId() : null,
+                OperationResponses.success(operationType));
+    }
+
+    boolean matches(WalletOperation operation) {
+        return operationType == operation.getOperationType()
+                && amount == operation.getAmount()
+                && Objects.equals(targetWalletId, operation.getTargetWalletId());
+    }
+
+    OperationResponse getResponse() {
+        return response;
+    }
+}
@@ -0,0 +1,321 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.entities.OperationRecord;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.exceptions.ClientErrorLog;
+import com.task.wallet.exceptions.IdempotencyConflictException;
+import com.task.wallet.exceptions.InvalidParameterException;
+import com.task.wallet.exceptions.WalletNotFoundException;
+import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.services.WalletMetrics;
+import com.task.wallet.services.crud.WalletCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Keeps balances in memory, partitioned by wallet's id hash across single-threaded shards.
+ * Every applied operation is journaled before the response, the wallets table and the ledger are updated
+ * asynchronously by snapshots. On startup the journal left by the previous run is written to the database first.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "wallet.operations.engine", havingValue = "SHARDED")
+public class ShardedOperationServiceImpl implements OperationService {
+    private static final String SHARD_DIRECTORY_PREFIX = "shard-";
+    private final WalletRepository walletRepository;
+    private final IdempotencyStore idempotencyStore;
+    private final BalanceSnapshotWriter balanceSnapshotWriter;
+    private final WalletCache walletCache;
+    private final WalletMetrics walletMetrics;
+    private final AdmissionControl admissionControl;
+    private final int shardCount;
+    private final int maxGroupSize;
+    private final String journalDirectory;
+    private final DataSize segmentSize;
+    private final Duration snapshotInterval;
+    private final int snapshotBatchSize;
+    private final int maxBatchRequestSize;
+    private WalletShard[] shards;
+    private ScheduledExecutorService snapshotExecutor;
+
+    public ShardedOperationServiceImpl(WalletRepository walletRepository,
+                                       IdempotencyStore idempotencyStore,
+                                       BalanceSnapshotWriter balanceSnapshotWriter,
+                                       WalletCache walletCache,
+                                       WalletMetrics walletMetrics,
+                                       AdmissionControl admissionControl,
+                                       @Value("${wallet.operations.sharded.shards:0}") int shardCount,
+                                       @Value("${wallet.operations.sharded.max-group-size:500}") int maxGroupSize,
+                                       @Value("${wallet.operations.sharded.journal.directory:data/journal}") String journalDirectory,
+                                       @Value("${wallet.operations.sharded.journal.segment-size:64MB}") DataSize segmentSize,
+                                       @Value("${wallet.operations.sharded.snapshot.interval:1s}") Duration snapshotInterval,
+                                       @Value("${wallet.operations.sharded.snapshot.batch-size:5000}") int snapshotBatchSize,
+                                       @Value("${wallet.operations.batch.max-size:100000}") int maxBatchRequestSize) {
+        this.walletRepository = walletRepository;
+        this.idempotencyStore = idempotencyStore;
+        this.balanceSnapshotWriter = balanceSnapshotWriter;
+        this.walletCache = walletCache;
+        this.walletMetrics = walletMetrics;
+        this.admissionControl = admissionControl;
+        this.shardCount = shardCount;
+        this.maxGroupSize = maxGroupSize;
+        this.journalDirectory = journalDirectory;
+        this.segmentSize = segmentSize;
+        this.snapshotInterval = snapshotInterval;
+        this.snapshotBatchSize = snapshotBatchSize;
+        this.maxBatchRequestSize = maxBatchRequestSize;
+    }
+
+    @PostConstruct
+    public void init() {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        try {
+            recover();
+            shards = new WalletShard[count];
+            for (int i = 0; i < count; i++) {
+                OperationJournal journal = new OperationJournal(
+                        Paths.get(journalDirectory, SHARD_DIRECTORY_PREFIX + i), (int) segmentSize.toBytes());
+                shards[i] = new WalletShard(i, idempotencyStore, walletCache, journal, maxGroupSize);
+                shards[i].start();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal of wallet's shards is not available", e);
+        }
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor();
+        snapshotExecutor.scheduleWithFixedDelay(this::snapshot,
+                snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Sharded operation's engine is started with {} shards", count);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        snapshotExecutor.shutdown();
+        snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        for (WalletShard shard : shards) {
+            shard.stop();
+        }
+        snapshot();
+    }
+
+    /**
+     * The returned future completes on the shard's thread once the operation is journaled.
+     */
+    @Override
+    public CompletableFuture<OperationResponse> processOperationAsync(OperationRequest operationRequest) {
+        WalletOperation operation = validateOperation(operationRequest);
+        AdmissionControl.Permit permit = admissionControl.admit(operation.getWalletId());
+        long start = walletMetrics.start();
+        CompletableFuture<OperationResponse> response;
+        try {
+            response = submit(operation);
+        } catch (RuntimeException e) {
+            permit.close();
+            walletMetrics.recordOperation(operation.getOperationType(), "error", start);
+            throw e;
+        }
+        return response.handle((operationResponse, e) -> {
+            permit.close();
+            if (e != null) {
+                walletMetrics.recordOperation(operation.getOperationType(), "error", start);
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            }
+            if (operationResponse.isResult()) {
+                walletMetrics.recordOperation(operation.getOperationType(), "success", start);
+            } else {
+                walletMetrics.countRejected(operation.getOperationType(), "insufficient_balance");
+                walletMetrics.recordOperation(operation.getOperationType(), "rejected", start);
+            }
+            return operationResponse;
+        });
+    }
+
+    @Override
+    public List<OperationResponse> processOperations(List<OperationRequest> operationRequests) {
+        if (operationRequests == null || operationRequests.size() > maxBatchRequestSize) {
+            ClientErrorLog.error(log, "Invalid size of operation's batch");
+            throw new InvalidParameterException("Size of operation's batch must be from 0 to " + maxBatchRequestSize);
+        }
+        AdmissionControl.Permit permit = admissionControl.admit(null);
+        try {
+            return applyOperations(operationRequests);
+        } finally {
+            permit.close();
+        }
+    }
+
+    private List<OperationResponse> applyOperations(List<OperationRequest> operationRequests) {
+        List<OperationResponse> responses = new ArrayList<>(Collections.nCopies(operationRequests.size(), null));
+        List<WalletOperation> operations = new ArrayList<>(Collections.nCopies(operationRequests.size(), null));
+        List<Future<OperationResponse>> futures = new ArrayList<>(Collections.nCopies(operationRequests.size(), null));
+        for (int i = 0; i < operationRequests.size(); i++) {
+            try {
+                operations.set(i, validateOperation(operationRequests.get(i)));
+                futures.set(i, submit(operations.get(i)));
+            } catch (InvalidParameterException e) {
+                responses.set(i, OperationResponses.failure(null, e.getMessage()));
+            } catch (WalletNotFoundException e) {
+                walletMetrics.countRejected(operations.get(i).getOperationType(), "not_found");
+                responses.set(i, OperationResponses.failure(operations.get(i).getOperationType(), e.getMessage()));
+            } catch (IdempotencyConflictException e) {
+                walletMetrics.countRejected(operations.get(i).getOperationType(), "idempotency_conflict");
+                responses.set(i, OperationResponses.failure(operations.get(i).getOperationType(), e.getMessage()));
+            }
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            if (futures.get(i) == null) {
+                continue;
+            }
+            WalletOperation operation = operations.get(i);
+            try {
+                OperationResponse operationResponse = awaitResponse(futures.get(i));
+                operationResponse.setOperationType(operation.getOperationType());
+                if (!operationResponse.isResult()) {
+                    walletMetrics.countRejected(operation.getOperationType(), "insufficient_balance");
+                }
+                responses.set(i, operationResponse);
+            } catch (WalletNotFoundException e) {
+                walletMetrics.countRejected(operation.getOperationType(), "not_found");
+                responses.set(i, OperationResponses.failure(operation.getOperationType(), e.getMessage()));
+            } catch (IdempotencyConflictException e) {
+                walletMetrics.countRejected(operation.getOperationType(), "idempotency_conflict");
+                responses.set(i, OperationResponses.failure(operation.getOperationType(), e.getMessage()));
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Writes every shard's journaled records to the database in batches and deletes the journal's segments behind them.
+     * A failed batch stays in its shard and is written again by the next snapshot. The written wallets are evicted
+     * from the cache once more, a read between the journal's acknowledgement and the snapshot caches the older balance.
+     */
+    private void snapshot() {
+        for (WalletShard shard : shards) {
+            try {
+                List<WalletShard.JournaledRecord> batch;
+                do {
+                    batch = shard.snapshotBatch(snapshotBatchSize);
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    List<OperationRecord> records = new ArrayList<>(batch.size());
+                    for (WalletShard.JournaledRecord journaledRecord : batch) {
+                        records.add(journaledRecord.record);
+                    }
+                    long start = walletMetrics.start();
+                    balanceSnapshotWriter.write(records);
+                    walletMetrics.recordDbWrite("snapshot", "MIXED", start);
+                    for (OperationRecord record : records) {
+                        walletCache.invalidate(record.getWalletId());
+                    }
+                    shard.acknowledgeSnapshot();
+                } while (batch.size() == snapshotBatchSize);
+            } catch (IOException | RuntimeException e) {
+                log.error("Snapshot of wallet's shard is failed and will be retried: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the records journaled by the previous run, whatever its count of shards was, and removes their segments.
+     */
+    private void recover() throws IOException {
+        Path root = Paths.get(journalDirectory);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (DirectoryStream<Path> shardDirectories = Files.newDirectoryStream(root, SHARD_DIRECTORY_PREFIX + "*")) {
+            for (Path shardDirectory : shardDirectories) {
+                List<OperationRecord> records = OperationJournal.readAll(shardDirectory);
+                for (int from = 0; from < records.size(); from += snapshotBatchSize) {
+                    balanceSnapshotWriter.write(records.subList(from, Math.min(from + snapshotBatchSize, records.size())));
+                }
+                OperationJournal.deleteAll(shardDirectory);
+                if (!records.isEmpty()) {
+                    log.info("{} journaled operations of {} are recovered", records.size(), shardDirectory);
+                }
+            }
+        }
+    }
+
+    /**
+     * A transfer would have to change two shards at once, so this engine applies single-wallet operations only.
+     * A wallet that the id filter knows to be absent is rejected before it reaches a shard.
+     */
+    private WalletOperation validateOperation(OperationRequest operationRequest) {
+        WalletOperation operation = WalletOperation.fromRequest(operationRequest);
+        if (operation.getOperationType() == OperationType.TRANSFER) {
+            ClientErrorLog.error(log, "Transfer is not supported by the sharded engine");
+            throw new InvalidParameterException("Operation's type TRANSFER is not supported by the sharded engine");
+        }
+        if (!walletCache.mightExist(operation.getWalletId())) {
+            ClientErrorLog.error(log, "Wallet not found for user ID: {}", operation.getWalletId());
+            throw new WalletNotFoundException("Wallet with id: " + operation.getWalletId() + " is not found");
+        }
+        return operation;
+    }
+
+    /**
+     * Does the lookups that wait for the database on the caller's thread, so the shard's thread only applies operations:
+     * an already applied idempotency key is answered here, and a wallet the shard does not hold yet is loaded here.
+     */
+    private CompletableFuture<OperationResponse> submit(WalletOperation operation) {
+        OperationResponse previousResponse = idempotencyStore.find(operation);
+        if (previousResponse != null) {
+            return CompletableFuture.completedFuture(previousResponse);
+        }
+        WalletShard shard = shardFor(operation.getWalletId());
+        Wallet wallet = null;
+        if (!shard.holds(operation.getWalletId())) {
+            wallet = walletRepository.findById(operation.getWalletId());
+            if (wallet == null) {
+                ClientErrorLog.error(log, "Wallet not found for user ID: {}", operation.getWalletId());
+                throw new WalletNotFoundException("Wallet with id: " + operation.getWalletId() + " is not found");
+            }
+        }
+        return shard.submit(operation, wallet);
+    }
+
+    private WalletShard shardFor(UUID walletId) {
+        int hash = walletId.hashCode();
+        hash ^= hash >>> 16;
+        return shards[Math.floorMod(hash, shards.length)];
+    }
+
+    private OperationResponse awaitResponse(Future<OperationResponse> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            log.error("Operation was interrupted");
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof WalletNotFoundException) {
+                throw (WalletNotFoundException) e.getCause();
+            }
+            if (e.getCause() instanceof IdempotencyConflictException) {
+                throw (IdempotencyConflictException) e.getCause();
+            }
+            log.error("Unexpected error during operation processing: {}", e.getMessage());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
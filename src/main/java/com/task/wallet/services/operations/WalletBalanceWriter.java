@@ -0,0 +1,267 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.entities.OperationRecord;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.exceptions.ClientErrorLog;
+import com.task.wallet.exceptions.IdempotencyConflictException;
+import com.task.wallet.exceptions.WalletNotFoundException;
+import com.task.wallet.repositories.BalanceChange;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.services.Money;
+import com.task.wallet.services.stream.BalanceStreamService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Changes wallet's balance and appends the ledger entries of applied operations in the same transaction.
+ * Every changed balance is published to the balance stream once the transaction is committed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WalletBalanceWriter {
+    private final WalletRepository walletRepository;
+    private final OperationRecordRepository operationRecordRepository;
+    private final BalanceStreamService balanceStreamService;
+
+    @Transactional
+    public OperationResponse apply(WalletOperation operation) {
+        if (operation.getOperationType() == OperationType.TRANSFER) {
+            return transfer(operation);
+        }
+        UUID walletId = operation.getWalletId();
+        BalanceChange balanceChange = operation.getOperationType() == OperationType.DEPOSIT
+                ? walletRepository.depositAmount(walletId, operation.getAmount())
+                : walletRepository.withdrawAmount(walletId, operation.getAmount());
+        if (balanceChange == null) {
+            if (walletRepository.findById(walletId) == null) {
+                throw walletNotFound(walletId);
+            }
+            return operation.getOperationType() == OperationType.DEPOSIT
+                    ? OperationResponses.balanceOverflow()
+                    : OperationResponses.notEnoughBalance();
+        }
+        operationRecordRepository.save(createRecord(operation,
+                balanceChange.getOperationSequence(), balanceChange.getBalance(), Instant.now()));
+        publishAfterCommit(walletId, balanceChange.getOperationSequence(), balanceChange.getBalance());
+        log.debug("{} is completed successfully for user's id: {}", operation.getOperationType(), walletId);
+        return OperationResponses.success(operation.getOperationType());
+    }
+
+    /**
+     * Reads the wallet without a lock and writes the new balance only if nothing changed the wallet in between.
+     * Throws OptimisticLockingFailureException on such a conflict. A transfer is applied with row locks as in other modes.
+     */
+    @Transactional
+    public OperationResponse applyOptimistic(WalletOperation operation) {
+        if (operation.getOperationType() == OperationType.TRANSFER) {
+            return transfer(operation);
+        }
+        UUID walletId = operation.getWalletId();
+        Wallet wallet = walletRepository.findById(walletId);
+        if (wallet == null) {
+            throw walletNotFound(walletId);
+        }
+        long balance;
+        if (operation.getOperationType() == OperationType.WITHDRAW) {
+            if (wallet.getBalance() < operation.getAmount()) {
+                return OperationResponses.notEnoughBalance();
+            }
+            balance = wallet.getBalance() - operation.getAmount();
+        } else {
+            if (!Money.canDeposit(wallet.getBalance(), operation.getAmount())) {
+                return OperationResponses.balanceOverflow();
+            }
+            balance = wallet.getBalance() + operation.getAmount();
+        }
+        if (walletRepository.compareAndSetBalance(walletId, wallet.getOperationSequence(), balance) == 0) {
+            throw new OptimisticLockingFailureException("Wallet with id: " + walletId + " is changed concurrently");
+        }
+        operationRecordRepository.save(createRecord(operation, wallet.getOperationSequence() + 1, balance, Instant.now()));
+        publishAfterCommit(walletId, wallet.getOperationSequence() + 1, balance);
+        log.debug("{} is completed successfully for user's id: {}", operation.getOperationType(), walletId);
+        return OperationResponses.success(operation.getOperationType());
+    }
+
+    /**
+     * Debits the source and credits the target in one transaction.
+     * Both rows are locked by one statement in order of their ids, so opposite transfers wait for each other instead of deadlocking.
+     * A concurrent duplicate waits for the same locks and then finds the first one's key in the ledger, so it returns
+     * the original response instead of failing on the unique key, or fails with an idempotency conflict
+     * if it asks for another operation.
+     */
+    @Transactional
+    public OperationResponse transfer(WalletOperation operation) {
+        UUID sourceId = operation.getWalletId();
+        UUID targetId = operation.getTargetWalletId();
+        Wallet source = null;
+        Wallet target = null;
+        for (Wallet wallet : walletRepository.findAllByIdForUpdate(List.of(sourceId, targetId))) {
+            if (wallet.getId().equals(sourceId)) {
+                source = wallet;
+            } else {
+                target = wallet;
+            }
+        }
+        if (source == null) {
+            throw walletNotFound(sourceId);
+        }
+        if (target == null) {
+            throw walletNotFound(targetId);
+        }
+        if (operation.getIdempotencyKey() != null) {
+            OperationRecord previousRecord = operationRecordRepository.findByWalletIdAndIdempotencyKey(
+                    sourceId, operation.getIdempotencyKey());
+            if (previousRecord != null) {
+                ProcessedOperation processedOperation = ProcessedOperation.of(previousRecord);
+                if (!processedOperation.matches(operation)) {
+                    throw idempotencyConflict(operation);
+                }
+                return processedOperation.getResponse();
+            }
+        }
+        if (source.getBalance() < operation.getAmount()) {
+            return OperationResponses.notEnoughBalance();
+        }
+        if (!Money.canDeposit(target.getBalance(), operation.getAmount())) {
+            return OperationResponses.balanceOverflow();
+        }
+        source.setBalance(source.getBalance() - operation.getAmount());
+        source.setOperationSequence(source.getOperationSequence() + 1);
+        target.setBalance(target.getBalance() + operation.getAmount());
+        target.setOperationSequence(target.getOperationSequence() + 1);
+        Instant createdAt = Instant.now();
+        operationRecordRepository.saveAll(List.of(
+                new OperationRecord(sourceId, source.getOperationSequence(), OperationType.TRANSFER, -operation.getAmount(),
+                        source.getBalance(), createdAt, operation.getIdempotencyKey(), targetId),
+                new OperationRecord(targetId, target.getOperationSequence(), OperationType.TRANSFER, operation.getAmount(),
+                        target.getBalance(), createdAt, null, sourceId)));
+        publishAfterCommit(sourceId, source.getOperationSequence(), source.getBalance());
+        publishAfterCommit(targetId, target.getOperationSequence(), target.getBalance());
+        log.debug("TRANSFER is completed successfully from user's id: {} to user's id: {}", sourceId, targetId);
+        return OperationResponses.success(OperationType.TRANSFER);
+    }
+
+    /**
+     * Applies a group of operations on one wallet in arrival order and stores only the resulting balance.
+     */
+    @Transactional
+    public List<OperationResponse> applyBatch(UUID walletId, List<WalletOperation> operations) {
+        Wallet wallet = walletRepository.findByIdForUpdate(walletId);
+        if (wallet == null) {
+            throw walletNotFound(walletId);
+        }
+        long balance = wallet.getBalance();
+        long sequence = wallet.getOperationSequence();
+        Instant createdAt = Instant.now();
+        Map<String, ProcessedOperation> processedKeys = findProcessedKeys(walletId, operations);
+        List<OperationResponse> responses = new ArrayList<>(operations.size());
+        List<OperationRecord> records = new ArrayList<>(operations.size());
+        for (WalletOperation operation : operations) {
+            String idempotencyKey = operation.getIdempotencyKey();
+            if (idempotencyKey != null && processedKeys.containsKey(idempotencyKey)) {
+                ProcessedOperation processedOperation = processedKeys.get(idempotencyKey);
+                responses.add(processedOperation.matches(operation) ? processedOperation.getResponse()
+                        : OperationResponses.failure(operation.getOperationType(),
+                                idempotencyConflict(operation).getMessage()));
+                continue;
+            }
+            OperationResponse rejection = null;
+            if (operation.getOperationType() == OperationType.WITHDRAW) {
+                if (balance < operation.getAmount()) {
+                    rejection = OperationResponses.notEnoughBalance();
+                }
+            } else if (!Money.canDeposit(balance, operation.getAmount())) {
+                rejection = OperationResponses.balanceOverflow();
+            }
+            if (rejection != null) {
+                responses.add(rejection);
+                if (idempotencyKey != null) {
+                    processedKeys.put(idempotencyKey, ProcessedOperation.of(operation, rejection));
+                }
+                continue;
+            }
+            balance = operation.getOperationType() == OperationType.WITHDRAW
+                    ? balance - operation.getAmount()
+                    : balance + operation.getAmount();
+            records.add(createRecord(operation, ++sequence, balance, createdAt));
+            responses.add(OperationResponses.success(operation.getOperationType()));
+            if (idempotencyKey != null) {
+                processedKeys.put(idempotencyKey, ProcessedOperation.of(operation, responses.get(responses.size() - 1)));
+            }
+        }
+        wallet.setBalance(balance);
+        wallet.setOperationSequence(sequence);
+        operationRecordRepository.saveAll(records);
+        if (!records.isEmpty()) {
+            publishAfterCommit(walletId, sequence, balance);
+        }
+        log.debug("Batch of {} operations is applied for user's id: {}", operations.size(), walletId);
+        return responses;
+    }
+
+    /**
+     * Operations of the wallet whose idempotency keys are used by the batch and are already in the ledger.
+     * Called after the wallet's row is locked, so a committed duplicate of the same wallet is always visible.
+     */
+    private Map<String, ProcessedOperation> findProcessedKeys(UUID walletId, List<WalletOperation> operations) {
+        List<String> idempotencyKeys = new ArrayList<>();
+        for (WalletOperation operation : operations) {
+            if (operation.getIdempotencyKey() != null) {
+                idempotencyKeys.add(operation.getIdempotencyKey());
+            }
+        }
+        Map<String, ProcessedOperation> processedKeys = new HashMap<>();
+        if (!idempotencyKeys.isEmpty()) {
+            for (OperationRecord record
+                    : operationRecordRepository.findByWalletIdAndIdempotencyKeyIn(walletId, idempotencyKeys)) {
+                processedKeys.put(record.getIdempotencyKey(), ProcessedOperation.of(record));
+            }
+        }
+        return processedKeys;
+    }
+
+    /**
+     * Outside a transaction the write is already committed, so the balance is published at once.
+     */
+    private void publishAfterCommit(UUID walletId, long sequence, long balance) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            balanceStreamService.publish(walletId, sequence, balance);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                balanceStreamService.publish(walletId, sequence, balance);
+            }
+        });
+    }
+
+    private OperationRecord createRecord(WalletOperation operation, long sequence, long balance, Instant createdAt) {
+        return new OperationRecord(operation.getWalletId(), sequence, operation.getOperationType(),
+                operation.getAmount(), balance, createdAt, operation.getIdempotencyKey(), null);
+    }
+
+    private IdempotencyConflictException idempotencyConflict(WalletOperation operation) {
+        ClientErrorLog.error(log, "Idempotency key: {} is reused for another operation", operation.getIdempotencyKey());
+        return new IdempotencyConflictException("Idempotency key: " + operation.getIdempotencyKey()
+                + " is already used for another operation of the wallet");
+    }
+
+    private WalletNotFoundException walletNotFound(UUID walletId) {
+        ClientErrorLog.error(log, "Wallet not found for user ID: {}", walletId);
+        return new WalletNotFoundException("Wallet with id: " + walletId + " is not found");
+    }
+}
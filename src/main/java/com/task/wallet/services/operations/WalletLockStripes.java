@@ -0,0 +1,31 @@
+package com.task.wallet.services.operations;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared by wallet's id hash.
+ * Operations on the same wallet always get the same lock, so inside one node they reach the database one by one.
+ */
+@Component
+public class WalletLockStripes {
+    private final Lock[] locks;
+
+    public WalletLockStripes(@Value("${wallet.operations.lock-stripes:64}") int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Count of lock's stripes must be positive");
+        }
+        locks = new Lock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock lockFor(UUID walletId) {
+        int hash = walletId.hashCode();
+        hash ^= hash >>> 16;
+        return locks[Math.floorMod(hash, locks.length)];
+    }
+}
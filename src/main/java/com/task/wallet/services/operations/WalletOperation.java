@@ -0,0 +1,39 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.services.ValidatorParameters;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import java.util.UUID;
+
+@ToString
+@Getter
+@AllArgsConstructor
+public class WalletOperation {
+    private final UUID walletId;
+    private final OperationType operationType;
+    /**
+     * Amount in Money's minor units.
+     */
+    private final long amount;
+    private final String idempotencyKey;
+    /**
+     * Credited wallet of a TRANSFER, null for other operations.
+     */
+    private final UUID targetWalletId;
+
+    public WalletOperation(UUID walletId, OperationType operationType, long amount, String idempotencyKey) {
+        this(walletId, operationType, amount, idempotencyKey, null);
+    }
+
+    static WalletOperation fromRequest(OperationRequest operationRequest) {
+        UUID userId = ValidatorParameters.validateUserId(operationRequest.getUserId());
+        OperationType operationType = ValidatorParameters.validateOperationType(operationRequest.getOperationType());
+        long amount = ValidatorParameters.validateAmount(operationRequest.getAmount());
+        String idempotencyKey = ValidatorParameters.validateIdempotencyKey(operationRequest.getIdempotencyKey());
+        UUID targetWalletId = operationType == OperationType.TRANSFER
+                ? ValidatorParameters.validateTransferTarget(userId, operationRequest.getTargetUserId())
+                : null;
+        return new WalletOperation(userId, operationType, amount, idempotencyKey, targetWalletId);
+    }
+}
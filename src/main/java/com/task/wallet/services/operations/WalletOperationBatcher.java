@@ -0,0 +1,168 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.services.WalletMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects pending operations per wallet and writes them with one database update per drained batch.
+ * For every wallet at most one drain task is active, so the batches of one wallet never overlap. Producers enqueue
+ * and the drain removes an empty queue under the map's lock of the wallet, so no operation is added to a removed queue.
+ */
+@Slf4j
+@Component
+public class WalletOperationBatcher {
+    private final WalletBalanceWriter walletBalanceWriter;
+    private final WalletMetrics walletMetrics;
+    private final int maxBatchSize;
+    private final ExecutorService drainExecutor;
+    private final ConcurrentMap<UUID, WalletQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedOperations = new AtomicInteger();
+
+    public WalletOperationBatcher(WalletBalanceWriter walletBalanceWriter,
+                                  WalletMetrics walletMetrics,
+                                  @Value("${wallet.operations.write-behind.max-batch-size:500}") int maxBatchSize,
+                                  @Value("${wallet.operations.write-behind.threads:10}") int threads) {
+        this.walletBalanceWriter = walletBalanceWriter;
+        this.walletMetrics = walletMetrics;
+        this.maxBatchSize = maxBatchSize;
+        this.drainExecutor = Executors.newFixedThreadPool(threads);
+        walletMetrics.registerQueueDepth(WalletMetrics.WRITE_BEHIND_QUEUE, queuedOperations::get);
+    }
+
+    /**
+     * Transfers touch two wallets, so they are not grouped into one wallet's batch and run on the drain pool by themselves.
+     */
+    public CompletableFuture<OperationResponse> submit(WalletOperation operation) {
+        if (operation.getOperationType() == OperationType.TRANSFER) {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = walletMetrics.start();
+                OperationResponse operationResponse = walletBalanceWriter.transfer(operation);
+                walletMetrics.recordDbWrite("batched", String.valueOf(OperationType.TRANSFER), start);
+                return operationResponse;
+            }, drainExecutor);
+        }
+        PendingOperation pendingOperation = new PendingOperation(operation, walletMetrics.start());
+        queuedOperations.incrementAndGet();
+        WalletQueue walletQueue = queues.compute(operation.getWalletId(), (walletId, queue) -> {
+            WalletQueue current = queue == null ? new WalletQueue() : queue;
+            current.pending.add(pendingOperation);
+            return current;
+        });
+        scheduleDrain(operation.getWalletId(), walletQueue);
+        return pendingOperation.response;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainExecutor.shutdown();
+    }
+
+    private void scheduleDrain(UUID walletId, WalletQueue walletQueue) {
+        if (walletQueue.draining.compareAndSet(false, true)) {
+            drainExecutor.execute(() -> drain(walletId, walletQueue));
+        }
+    }
+
+    private void drain(UUID walletId, WalletQueue walletQueue) {
+        try {
+            List<PendingOperation> batch = new ArrayList<>();
+            PendingOperation next;
+            while (batch.size() < maxBatchSize && (next = walletQueue.pending.poll()) != null) {
+                queuedOperations.decrementAndGet();
+                walletMetrics.recordQueueWait(WalletMetrics.WRITE_BEHIND_QUEUE, next.enqueuedAt);
+                batch.add(next);
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(walletId, batch);
+            }
+        } finally {
+            finishDrain(walletId, walletQueue);
+        }
+    }
+
+    /**
+     * An empty queue is removed while it is still marked as draining, so a producer that enqueued to it before
+     * never schedules another drain of it.
+     */
+    private void finishDrain(UUID walletId, WalletQueue walletQueue) {
+        WalletQueue remaining = queues.computeIfPresent(walletId, (id, queue) -> {
+            if (queue != walletQueue) {
+                return queue;
+            }
+            if (queue.pending.isEmpty()) {
+                return null;
+            }
+            queue.draining.set(false);
+            return queue;
+        });
+        if (remaining == walletQueue) {
+            scheduleDrain(walletId, walletQueue);
+        }
+    }
+
+    private void writeBatch(UUID walletId, List<PendingOperation> batch) {
+        List<WalletOperation> operations = new ArrayList<>(batch.size());
+        for (PendingOperation pendingOperation : batch) {
+            operations.add(pendingOperation.operation);
+        }
+        long start = walletMetrics.start();
+        try {
+            List<OperationResponse> responses = walletBalanceWriter.applyBatch(walletId, operations);
+            walletMetrics.recordDbWrite("batched", batchOperationType(operations), start);
+            walletMetrics.recordBatchSize(operations.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).response.complete(responses.get(i));
+            }
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() == 1) {
+                batch.get(0).response.completeExceptionally(e);
+                return;
+            }
+            log.warn("Batch for user's id: {} conflicts with a concurrent idempotency key, retrying one by one", walletId);
+            for (PendingOperation pendingOperation : batch) {
+                writeBatch(walletId, List.of(pendingOperation));
+            }
+        } catch (RuntimeException e) {
+            for (PendingOperation pendingOperation : batch) {
+                pendingOperation.response.completeExceptionally(e);
+            }
+        }
+    }
+
+    private String batchOperationType(List<WalletOperation> operations) {
+        OperationType operationType = operations.get(0).getOperationType();
+        for (WalletOperation operation : operations) {
+            if (operation.getOperationType() != operationType) {
+                return "MIXED";
+            }
+        }
+        return String.valueOf(operationType);
+    }
+
+    private static class WalletQueue {
+        private final Queue<PendingOperation> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+    }
+
+    private static class PendingOperation {
+        private final WalletOperation operation;
+        private final long enqueuedAt;
+        private final CompletableFuture<OperationResponse> response = new CompletableFuture<>();
+
+        private PendingOperation(WalletOperation operation, long enqueuedAt) {
+            this.operation = operation;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
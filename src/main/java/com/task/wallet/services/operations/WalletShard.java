@@ -0,0 +1,267 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.entities.OperationRecord;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.services.Money;
+import com.task.wallet.services.crud.WalletCache;
+import lombok.extern.slf4j.Slf4j;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Owns the balances of the wallets whose id hash falls into this shard and changes them on its single thread without locks.
+ * Operations are applied in groups: the records of a group are appended to the journal, the journal is forced once,
+ * and only then the responses are remembered, the changed wallets are evicted from the wallet cache and the callers
+ * get their responses. If the journal fails, the balances changed by the group are restored.
+ * Journaled records wait for the snapshot in arrival order. The shard's thread never waits for the database:
+ * the submitter looks up the idempotency key in the ledger and loads a wallet the shard does not hold yet.
+ */
+@Slf4j
+class WalletShard {
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private final int index;
+    private final IdempotencyStore idempotencyStore;
+    private final WalletCache walletCache;
+    private final OperationJournal journal;
+    private final int maxGroupSize;
+    private final BlockingQueue<PendingOperation> pending = new LinkedBlockingQueue<>();
+    private final Queue<JournaledRecord> journaled = new ConcurrentLinkedQueue<>();
+    private final Map<UUID, WalletState> wallets = new ConcurrentHashMap<>();
+    private final Map<UUID, WalletState> groupStartStates = new HashMap<>();
+    private final Map<UUID, Map<String, ProcessedOperation>> groupProcessed = new HashMap<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean failed;
+    private List<JournaledRecord> snapshotBatch;
+
+    WalletShard(int index, IdempotencyStore idempotencyStore, WalletCache walletCache,
+                OperationJournal journal, int maxGroupSize) {
+        this.index = index;
+        this.idempotencyStore = idempotencyStore;
+        this.walletCache = walletCache;
+        this.journal = journal;
+        this.maxGroupSize = maxGroupSize;
+        this.thread = new Thread(this::run, "wallet-shard-" + index);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops accepting new work after the already submitted operations are applied.
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        thread.join();
+    }
+
+    /**
+     * Whether the shard already holds the wallet's balance, the state is never dropped once loaded.
+     */
+    boolean holds(UUID walletId) {
+        return wallets.containsKey(walletId);
+    }
+
+    /**
+     * Wallet must be the stored wallet of the operation unless the shard already holds it.
+     */
+    CompletableFuture<OperationResponse> submit(WalletOperation operation, Wallet wallet) {
+        if (!running || failed) {
+            throw new IllegalStateException("Wallet's shard " + index + " does not accept operations");
+        }
+        PendingOperation pendingOperation = new PendingOperation(operation, wallet);
+        pending.add(pendingOperation);
+        return pendingOperation.response;
+    }
+
+    /**
+     * Journaled records not yet written to the database. Returns the same batch until it is acknowledged,
+     * so a failed snapshot is retried with the same records. Called by the snapshot's thread only.
+     */
+    List<JournaledRecord> snapshotBatch(int maxSize) {
+        if (snapshotBatch == null) {
+            snapshotBatch = new ArrayList<>();
+            JournaledRecord next;
+            while (snapshotBatch.size() < maxSize && (next = journaled.poll()) != null) {
+                snapshotBatch.add(next);
+            }
+        }
+        return snapshotBatch;
+    }
+
+    void acknowledgeSnapshot() throws IOException {
+        if (!snapshotBatch.isEmpty()) {
+            journal.deleteSegmentsBefore(snapshotBatch.get(snapshotBatch.size() - 1).segment);
+        }
+        snapshotBatch = null;
+    }
+
+    private void run() {
+        List<PendingOperation> group = new ArrayList<>(maxGroupSize);
+        while (running || !pending.isEmpty()) {
+            try {
+                PendingOperation first = pending.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                pending.drainTo(group, maxGroupSize - 1);
+                applyGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+                groupStartStates.clear();
+                groupProcessed.clear();
+            }
+        }
+    }
+
+    private void applyGroup(List<PendingOperation> group) {
+        if (failed) {
+            for (PendingOperation pendingOperation : group) {
+                pendingOperation.response.completeExceptionally(
+                        new IllegalStateException("Journal of wallet's shard " + index + " is not writable"));
+            }
+            return;
+        }
+        List<OperationRecord> records = new ArrayList<>();
+        OperationResponse[] responses = new OperationResponse[group.size()];
+        for (int i = 0; i < group.size(); i++) {
+            try {
+                responses[i] = apply(group.get(i), records);
+            } catch (RuntimeException e) {
+                group.get(i).response.completeExceptionally(e);
+            }
+        }
+        try {
+            List<JournaledRecord> appended = new ArrayList<>(records.size());
+            for (OperationRecord record : records) {
+                appended.add(new JournaledRecord(record, journal.append(record)));
+            }
+            if (!appended.isEmpty()) {
+                journal.force();
+            }
+            journaled.addAll(appended);
+            for (OperationRecord record : records) {
+                walletCache.invalidate(record.getWalletId());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Journal of wallet's shard {} is not writable, the shard stops accepting operations", index, e);
+            failed = true;
+            restoreGroupStartStates();
+            for (PendingOperation pendingOperation : group) {
+                pendingOperation.response.completeExceptionally(
+                        new IllegalStateException("Journal of wallet's shard " + index + " is not writable", e));
+            }
+            return;
+        }
+        for (int i = 0; i < group.size(); i++) {
+            if (responses[i] != null) {
+                idempotencyStore.remember(group.get(i).operation, responses[i]);
+                group.get(i).response.complete(responses[i]);
+            }
+        }
+    }
+
+    private void restoreGroupStartStates() {
+        groupStartStates.forEach((walletId, startState) -> {
+            if (startState == null) {
+                wallets.remove(walletId);
+            } else {
+                wallets.put(walletId, startState);
+            }
+        });
+    }
+
+    /**
+     * A duplicate submitted before the original was applied is found among the remembered operations,
+     * or among the operations of the same group, which are remembered only after the journal is forced.
+     */
+    private OperationResponse apply(PendingOperation pendingOperation, List<OperationRecord> records) {
+        WalletOperation operation = pendingOperation.operation;
+        OperationResponse previousResponse = findProcessed(operation);
+        if (previousResponse != null) {
+            return previousResponse;
+        }
+        WalletState wallet = wallets.get(operation.getWalletId());
+        if (!groupStartStates.containsKey(operation.getWalletId())) {
+            groupStartStates.put(operation.getWalletId(), wallet == null ? null : new WalletState(wallet.balance, wallet.sequence));
+        }
+        if (wallet == null) {
+            wallet = new WalletState(pendingOperation.wallet.getBalance(), pendingOperation.wallet.getOperationSequence());
+            wallets.put(operation.getWalletId(), wallet);
+        }
+        OperationResponse operationResponse;
+        if (operation.getOperationType() == OperationType.WITHDRAW && wallet.balance < operation.getAmount()) {
+            operationResponse = OperationResponses.notEnoughBalance();
+        } else if (operation.getOperationType() == OperationType.DEPOSIT
+                && !Money.canDeposit(wallet.balance, operation.getAmount())) {
+            operationResponse = OperationResponses.balanceOverflow();
+        } else {
+            wallet.balance = operation.getOperationType() == OperationType.DEPOSIT
+                    ? wallet.balance + operation.getAmount()
+                    : wallet.balance - operation.getAmount();
+            wallet.sequence++;
+            records.add(new OperationRecord(operation.getWalletId(), wallet.sequence, operation.getOperationType(),
+                    operation.getAmount(), wallet.balance, Instant.now(), operation.getIdempotencyKey(), null));
+            operationResponse = OperationResponses.success(operation.getOperationType());
+        }
+        if (operation.getIdempotencyKey() != null && operationResponse.isResult()) {
+            groupProcessed.computeIfAbsent(operation.getWalletId(), walletId -> new HashMap<>())
+                    .put(operation.getIdempotencyKey(), ProcessedOperation.of(operation, operationResponse));
+        }
+        return operationResponse;
+    }
+
+    private OperationResponse findProcessed(WalletOperation operation) {
+        OperationResponse previousResponse = idempotencyStore.findRemembered(operation);
+        if (previousResponse != null || operation.getIdempotencyKey() == null) {
+            return previousResponse;
+        }
+        Map<String, ProcessedOperation> walletProcessed = groupProcessed.get(operation.getWalletId());
+        ProcessedOperation processedOperation =
+                walletProcessed == null ? null : walletProcessed.get(operation.getIdempotencyKey());
+        return processedOperation == null ? null : idempotencyStore.checkedResponse(operation, processedOperation);
+    }
+
+    static class JournaledRecord {
+        final OperationRecord record;
+        final long segment;
+
+        private JournaledRecord(OperationRecord record, long segment) {
+            this.record = record;
+            this.segment = segment;
+        }
+    }
+
+    private static class WalletState {
+        private long balance;
+        private long sequence;
+
+        private WalletState(long balance, long sequence) {
+            this.balance = balance;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class PendingOperation {
+        private final WalletOperation operation;
+        private final Wallet wallet;
+        private final CompletableFuture<OperationResponse> response = new CompletableFuture<>();
+
+        private PendingOperation(WalletOperation operation, Wallet wallet) {
+            this.operation = operation;
+            this.wallet = wallet;
+        }
+    }
+}
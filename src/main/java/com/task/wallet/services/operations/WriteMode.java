@@ -0,0 +1,7 @@
+package com.task.wallet.services.operations;
+
+public enum WriteMode {
+    ATOMIC,
+    BATCHED,
+    OPTIMISTIC
+}
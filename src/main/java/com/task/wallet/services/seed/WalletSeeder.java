@@ -0,0 +1,115 @@
+package com.task.wallet.services.seed;
+import com.task.wallet.services.crud.WalletIdFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tops the wallets table up to wallet.seed.wallets synthetic wallets with one COPY ... FROM STDIN.
+ * Rows are generated and sent in chunks of wallet.seed.batch-size, so memory does not depend on the count of wallets.
+ * Runs only with the seed profile, a restart with the same count inserts nothing.
+ * Seeded ids are added to WalletIdFilter, so the filter does not reject them until its next rebuild.
+ */
+@Slf4j
+@Component
+@Profile("seed")
+public class WalletSeeder implements ApplicationRunner {
+    private static final String COPY_WALLETS = "COPY wallets (id, balance, owner_first_name, owner_last_name, "
+            + "operation_sequence) FROM STDIN WITH (FORMAT csv)";
+    private static final String[] FIRST_NAMES = {"Moritz", "Dee dee", "Jamesy", "Deeyn", "Montgomery", "Saoirse",
+            "Ardith", "Lorenzo", "Gwyneth", "Tobiah", "Marylou", "Ewan"};
+    private static final String[] LAST_NAMES = {"Marriner", "Cecchi", "Lowther", "Basile", "Defty", "Mulligan",
+            "Pettifer", "Ollerhead", "Brimble", "Kearsley", "Tamblingson", "Wyvill"};
+    private static final long MAX_BALANCE = 50_000_000L;
+    private final DataSource dataSource;
+    private final WalletIdFilter walletIdFilter;
+    private final long wallets;
+    private final int batchSize;
+    private final long randomSeed;
+
+    public WalletSeeder(DataSource dataSource,
+                        WalletIdFilter walletIdFilter,
+                        @Value("${wallet.seed.wallets:1000000}") long wallets,
+                        @Value("${wallet.seed.batch-size:10000}") int batchSize,
+                        @Value("${wallet.seed.random-seed:42}") long randomSeed) {
+        this.dataSource = dataSource;
+        this.walletIdFilter = walletIdFilter;
+        this.wallets = wallets;
+        this.batchSize = batchSize;
+        this.randomSeed = randomSeed;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            long existing = countWallets(connection);
+            if (existing >= wallets) {
+                log.info("Seeding is skipped, {} wallets already exist", existing);
+                return;
+            }
+            long seeded = wallets - existing;
+            copyWallets(connection, seeded, new Random(randomSeed + existing));
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("{} synthetic wallets are seeded in {} ms ({} wallets/s)",
+                    seeded, elapsedMillis, seeded * 1000 / Math.max(elapsedMillis, 1));
+        }
+    }
+
+    private long countWallets(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM wallets")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private void copyWallets(Connection connection, long count, Random random) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_WALLETS);
+        try {
+            StringBuilder rows = new StringBuilder(batchSize * 80);
+            for (long i = 0; i < count; i++) {
+                walletIdFilter.add(appendWallet(rows, random));
+                if ((i + 1) % batchSize == 0 || i + 1 == count) {
+                    byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+                    copyIn.writeToCopy(bytes, 0, bytes.length);
+                    rows.setLength(0);
+                }
+            }
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    /**
+     * Appends one CSV row of a wallet with a random version 4 id and a balance in minor units from 0 to 500000.00.
+     * Returns the id of the wallet.
+     */
+    static UUID appendWallet(StringBuilder rows, Random random) {
+        long mostSignificantBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSignificantBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        UUID walletId = new UUID(mostSignificantBits, leastSignificantBits);
+        rows.append(walletId).append(',')
+                .append(random.nextLong(MAX_BALANCE + 1)).append(',')
+                .append(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]).append(',')
+                .append(LAST_NAMES[random.nextInt(LAST_NAMES.length)]).append(",0\n");
+        return walletId;
+    }
+}
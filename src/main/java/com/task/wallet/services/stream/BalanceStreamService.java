@@ -0,0 +1,10 @@
+package com.task.wallet.services.stream;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.util.List;
+import java.util.UUID;
+
+public interface BalanceStreamService {
+    SseEmitter subscribe(List<String> walletIds);
+
+    void publish(UUID walletId, long sequence, long balance);
+}
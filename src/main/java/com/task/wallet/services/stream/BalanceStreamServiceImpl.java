@@ -0,0 +1,302 @@
+package com.task.wallet.services.stream;
+import com.task.wallet.dto.BalanceUpdateDto;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.exceptions.ClientErrorLog;
+import com.task.wallet.exceptions.InvalidParameterException;
+import com.task.wallet.exceptions.WalletNotFoundException;
+import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.services.Money;
+import com.task.wallet.services.ValidatorParameters;
+import com.task.wallet.services.WalletMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes balances of the subscribed wallets to SSE clients, starting with the current ones.
+ * Publishing only stores the balance as the subscriber's pending one for the wallet and queues the subscriber
+ * on the sender pool, so the operation's thread never writes to a socket. A subscriber is queued at most once
+ * and sends whatever is pending when its turn comes, so a slow client gets the latest balance of every wallet
+ * instead of a backlog of changes. A balance whose sequence is not above the last one sent for the wallet is skipped,
+ * so a client never gets an older balance after a newer one. An idle subscriber holds no thread, only its emitter and a few map entries.
+ * Writes to the socket block, so a watchdog drops a subscriber whose write takes longer than wallet.stream.send-timeout
+ * and adds a sender thread in place of the stuck one until the write returns, when the stream is completed.
+ */
+@Slf4j
+@Service
+public class BalanceStreamServiceImpl implements BalanceStreamService {
+    private static final long NOT_WRITING = Long.MIN_VALUE;
+    private static final long DROPPED = Long.MIN_VALUE + 1;
+    private final WalletRepository walletRepository;
+    private final WalletMetrics walletMetrics;
+    private final int maxWallets;
+    private final Duration timeout;
+    private final Duration heartbeatInterval;
+    private final int senderThreads;
+    private final Duration sendTimeout;
+    private final Map<UUID, Set<Subscriber>> subscribersByWallet = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor senderExecutor;
+    private ScheduledExecutorService heartbeatExecutor;
+
+    public BalanceStreamServiceImpl(WalletRepository walletRepository,
+                                    WalletMetrics walletMetrics,
+                                    @Value("${wallet.stream.max-wallets:100}") int maxWallets,
+                                    @Value("${wallet.stream.timeout:30m}") Duration timeout,
+                                    @Value("${wallet.stream.heartbeat-interval:15s}") Duration heartbeatInterval,
+                                    @Value("${wallet.stream.sender-threads:4}") int senderThreads,
+                                    @Value("${wallet.stream.send-timeout:5s}") Duration sendTimeout) {
+        this.walletRepository = walletRepository;
+        this.walletMetrics = walletMetrics;
+        this.maxWallets = maxWallets;
+        this.timeout = timeout;
+        this.heartbeatInterval = heartbeatInterval;
+        this.senderThreads = senderThreads;
+        this.sendTimeout = sendTimeout;
+        walletMetrics.registerStreamSubscribers(subscribers::size);
+    }
+
+    @PostConstruct
+    public void init() {
+        senderExecutor = new ThreadPoolExecutor(senderThreads, senderThreads,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor();
+        heartbeatExecutor.scheduleAtFixedRate(this::heartbeat,
+                heartbeatInterval.toMillis(), heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        long watchdogInterval = Math.max(1, sendTimeout.toMillis() / 2);
+        heartbeatExecutor.scheduleWithFixedDelay(this::dropStalledSubscribers,
+                watchdogInterval, watchdogInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        senderExecutor.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    /**
+     * The subscriber is registered before the current balances are read, so a change committed in between
+     * is not missed: of the two pending balances of a wallet the one with the higher sequence is kept.
+     */
+    @Override
+    public SseEmitter subscribe(List<String> walletIds) {
+        if (walletIds == null || walletIds.isEmpty() || walletIds.size() > maxWallets) {
+            ClientErrorLog.error(log, "Invalid count of streamed wallets");
+            throw new InvalidParameterException("Count of streamed wallets must be from 1 to " + maxWallets);
+        }
+        Set<UUID> ids = new LinkedHashSet<>();
+        for (String walletId : walletIds) {
+            ids.add(ValidatorParameters.validateUserId(walletId));
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeout.toMillis()), ids);
+        subscribers.add(subscriber);
+        for (UUID walletId : ids) {
+            subscribersByWallet.compute(walletId, (id, walletSubscribers) -> {
+                Set<Subscriber> updated = walletSubscribers != null ? walletSubscribers : ConcurrentHashMap.newKeySet();
+                updated.add(subscriber);
+                return updated;
+            });
+        }
+        subscriber.emitter.onTimeout(subscriber.emitter::complete);
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(e -> unsubscribe(subscriber));
+        long start = walletMetrics.start();
+        List<Wallet> wallets = walletRepository.findByIdIn(ids);
+        walletMetrics.recordDbRead("findByIdIn", start);
+        if (wallets.size() < ids.size()) {
+            unsubscribe(subscriber);
+            Set<UUID> missing = new LinkedHashSet<>(ids);
+            wallets.forEach(wallet -> missing.remove(wallet.getId()));
+            UUID walletId = missing.iterator().next();
+            ClientErrorLog.error(log, "Wallet not found for user ID: {}", walletId);
+            throw new WalletNotFoundException("Wallet with id: " + walletId + " is not found");
+        }
+        for (Wallet wallet : wallets) {
+            offer(subscriber, new BalanceUpdate(wallet.getId(), wallet.getOperationSequence(), wallet.getBalance()));
+        }
+        log.debug("Balances of {} wallets are streamed", ids.size());
+        return subscriber.emitter;
+    }
+
+    @Override
+    public void publish(UUID walletId, long sequence, long balance) {
+        Set<Subscriber> walletSubscribers = subscribersByWallet.get(walletId);
+        if (walletSubscribers == null) {
+            return;
+        }
+        BalanceUpdate update = new BalanceUpdate(walletId, sequence, balance);
+        for (Subscriber subscriber : walletSubscribers) {
+            offer(subscriber, update);
+        }
+    }
+
+    private void offer(Subscriber subscriber, BalanceUpdate update) {
+        Long lastSentSequence = subscriber.lastSentSequences.get(update.walletId);
+        if (lastSentSequence != null && update.sequence <= lastSentSequence) {
+            walletMetrics.countStreamUpdate("stale");
+            return;
+        }
+        subscriber.pending.merge(update.walletId, update, (pending, next) -> {
+            walletMetrics.countStreamUpdate("coalesced");
+            return next.sequence > pending.sequence ? next : pending;
+        });
+        schedule(subscriber);
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeat.set(true);
+            schedule(subscriber);
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                senderExecutor.execute(() -> send(subscriber));
+            } catch (RejectedExecutionException e) {
+                log.debug("Stream of balances is shut down");
+            }
+        }
+    }
+
+    /**
+     * Runs on the sender pool, one task per subscriber at a time. The last sent sequence is checked again here,
+     * as a balance may become pending after a newer one of the wallet was sent. A failed write means the client is gone,
+     * the subscriber stays marked as scheduled and is not queued again.
+     */
+    private void send(Subscriber subscriber) {
+        do {
+            try {
+                for (UUID walletId : subscriber.pending.keySet()) {
+                    BalanceUpdate update = subscriber.pending.remove(walletId);
+                    if (update == null) {
+                        continue;
+                    }
+                    Long lastSentSequence = subscriber.lastSentSequences.get(walletId);
+                    if (lastSentSequence != null && update.sequence <= lastSentSequence) {
+                        walletMetrics.countStreamUpdate("stale");
+                        continue;
+                    }
+                    write(subscriber, SseEmitter.event().name("balance").data(toDto(update), MediaType.APPLICATION_JSON));
+                    subscriber.lastSentSequences.put(walletId, update.sequence);
+                    walletMetrics.countStreamUpdate("sent");
+                }
+                if (subscriber.heartbeat.getAndSet(false)) {
+                    write(subscriber, SseEmitter.event().comment("heartbeat"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Subscriber of balances is disconnected: {}", e.getMessage());
+                unsubscribe(subscriber);
+                return;
+            }
+            subscriber.scheduled.set(false);
+        } while ((!subscriber.pending.isEmpty() || subscriber.heartbeat.get())
+                && subscriber.scheduled.compareAndSet(false, true));
+    }
+
+    /**
+     * A write that returns after the watchdog dropped the subscriber gives its extra sender thread back,
+     * completes the stream and stops the sending.
+     */
+    private void write(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.writeStarted.set(System.nanoTime());
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            if (subscriber.writeStarted.getAndSet(NOT_WRITING) == DROPPED) {
+                resizeSenders(-1);
+                subscriber.emitter.complete();
+                throw new IllegalStateException("Write took longer than " + sendTimeout);
+            }
+        }
+    }
+
+    private void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long writeStarted = subscriber.writeStarted.get();
+            if (writeStarted != NOT_WRITING && writeStarted != DROPPED && now - writeStarted > sendTimeout.toNanos()
+                    && subscriber.writeStarted.compareAndSet(writeStarted, DROPPED)) {
+                ClientErrorLog.error(log, "Subscriber of balances is dropped, a write takes longer than {}", sendTimeout);
+                walletMetrics.countStreamDropped();
+                unsubscribe(subscriber);
+                resizeSenders(1);
+            }
+        }
+    }
+
+    /**
+     * Core size is raised after the maximum and lowered before it, as ThreadPoolExecutor requires core <= maximum.
+     */
+    private synchronized void resizeSenders(int delta) {
+        int size = senderExecutor.getCorePoolSize() + delta;
+        if (delta > 0) {
+            senderExecutor.setMaximumPoolSize(size);
+            senderExecutor.setCorePoolSize(size);
+        } else {
+            senderExecutor.setCorePoolSize(size);
+            senderExecutor.setMaximumPoolSize(size);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        for (UUID walletId : subscriber.walletIds) {
+            subscribersByWallet.computeIfPresent(walletId, (id, walletSubscribers) -> {
+                walletSubscribers.remove(subscriber);
+                return walletSubscribers.isEmpty() ? null : walletSubscribers;
+            });
+        }
+    }
+
+    private static BalanceUpdateDto toDto(BalanceUpdate update) {
+        BalanceUpdateDto balanceUpdateDto = new BalanceUpdateDto();
+        balanceUpdateDto.setWalletId(String.valueOf(update.walletId));
+        balanceUpdateDto.setBalance(Money.toDecimal(update.balance));
+        balanceUpdateDto.setSequence(update.sequence);
+        return balanceUpdateDto;
+    }
+
+    private static final class BalanceUpdate {
+        private final UUID walletId;
+        private final long sequence;
+        private final long balance;
+
+        private BalanceUpdate(UUID walletId, long sequence, long balance) {
+            this.walletId = walletId;
+            this.sequence = sequence;
+            this.balance = balance;
+        }
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<UUID> walletIds;
+        private final Map<UUID, BalanceUpdate> pending = new ConcurrentHashMap<>();
+        private final Map<UUID, Long> lastSentSequences = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean heartbeat = new AtomicBoolean();
+        private final AtomicLong writeStarted = new AtomicLong(NOT_WRITING);
+
+        private Subscriber(SseEmitter emitter, Set<UUID> walletIds) {
+            this.emitter = emitter;
+            this.walletIds = walletIds;
+        }
+    }
+}
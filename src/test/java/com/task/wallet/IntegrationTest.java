@@ -44,7 +44,7 @@ class IntegrationTest {
 	@BeforeEach
 	public void fillingDataBase() {
 		Wallet wallet = new Wallet();
-		wallet.setBalance(BigDecimal.valueOf(10000.00));
+		wallet.setBalance(1_000_000L);
 		wallet.setOwnerFirstName("Test");
 		wallet.setOwnerLastName("Testerov");
 		walletRepository.save(wallet);
@@ -0,0 +1,143 @@
+package com.task.wallet;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.exceptions.WalletNotFoundException;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.services.crud.CRUDService;
+import com.task.wallet.services.operations.OperationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A primary and a streaming replica of it: read-only transactions and wallet reads are served by the replica,
+ * operations by the primary, and a wallet changed by an operation is read back from the primary at once.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = "wallet.datasource.replica.health-check-interval=200ms")
+class ReplicaRoutingTest {
+    private static final Network NETWORK = Network.newNetwork();
+    @Container
+    public static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:14")
+            .withNetwork(NETWORK)
+            .withNetworkAliases("primary")
+            .withCommand("postgres", "-c", "fsync=off", "-c", "wal_level=replica", "-c", "max_wal_senders=4")
+            .withCopyToContainer(Transferable.of("echo 'host replication all all scram-sha-256' >> \"$PGDATA/pg_hba.conf\"\n"),
+                    "/docker-entrypoint-initdb.d/replication.sh");
+    @Container
+    public static GenericContainer<?> replica = new GenericContainer<>("postgres:14")
+            .withNetwork(NETWORK)
+            .dependsOn(primary)
+            .withEnv("PGPASSWORD", "test")
+            .withExposedPorts(PostgreSQLContainer.POSTGRESQL_PORT)
+            .withCreateContainerCmdModifier(cmd -> cmd.withUser("postgres").withEntrypoint("bash", "-c",
+                    "until pg_basebackup -h primary -U test -D /tmp/replica -R -X stream; do sleep 1; done"
+                            + " && chmod 700 /tmp/replica && exec postgres -D /tmp/replica"))
+            .waitingFor(Wait.forLogMessage(".*database system is ready to accept read-only connections.*\\s", 1));
+    @Autowired
+    private CRUDService crudService;
+    @Autowired
+    private OperationService operationService;
+    @Autowired
+    private WalletRepository walletRepository;
+    @Autowired
+    private OperationRecordRepository operationRecordRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    public static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("wallet.datasource.replica.enabled", () -> "true");
+        registry.add("wallet.datasource.replica.urls", () -> "jdbc:postgresql://" + replica.getHost() + ":"
+                + replica.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + primary.getDatabaseName());
+    }
+
+    @AfterEach
+    public void clearDataBase() {
+        operationRecordRepository.deleteAllInBatch();
+        walletRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Read-only transactions run on the replica, read-write ones on the primary")
+    void whenTransactionIsReadOnly_thenReplicaServesIt() throws Exception {
+        Assertions.assertFalse(isInRecovery(false));
+        awaitTrue(() -> isInRecovery(true));
+    }
+
+    @Test
+    @DisplayName("Wallet is read from the replica, and right after an operation from the primary")
+    void whenOperationIsApplied_thenNewBalanceIsReadBack() throws Exception {
+        Wallet wallet = new Wallet();
+        wallet.setBalance(1_000L);
+        wallet.setOwnerFirstName("Test");
+        wallet.setOwnerLastName("Testerov");
+        UUID walletId = walletRepository.save(wallet).getId();
+        OperationRequest request = new OperationRequest();
+        request.setUserId(String.valueOf(walletId));
+        request.setOperationType("DEPOSIT");
+        request.setAmount("5");
+
+        awaitTrue(() -> isInRecovery(true));
+        awaitTrue(() -> {
+            try {
+                return crudService.getDataWallet(String.valueOf(walletId)).getBalance()
+                        .compareTo(new BigDecimal("10.00")) == 0;
+            } catch (WalletNotFoundException e) {
+                return false;
+            }
+        });
+        Assertions.assertTrue(replicaReads() > 0);
+        Assertions.assertTrue(operationService.processOperation(request).isResult());
+
+        Assertions.assertEquals(0, new BigDecimal("15.00")
+                .compareTo(crudService.getDataWallet(String.valueOf(walletId)).getBalance()));
+        awaitTrue(() -> crudService.getWalletOperations(String.valueOf(walletId), null, 10)
+                .getOperations().size() == 1);
+    }
+
+    private double replicaReads() {
+        Counter counter = meterRegistry.find("wallet.datasource.reads").tag("target", "replica").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private boolean isInRecovery(boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                jdbcTemplate.queryForObject("SELECT pg_is_in_recovery()", Boolean.class)));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Condition is not met in 30 s");
+            Thread.sleep(100);
+        }
+    }
+}
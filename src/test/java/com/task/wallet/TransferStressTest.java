@@ -0,0 +1,107 @@
+package com.task.wallet;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.services.Money;
+import com.task.wallet.services.operations.OperationService;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Concurrent transfers in both directions between a few wallets against a real Postgres:
+ * every transfer completes without deadlock and every balance ends as the sum of the applied transfers.
+ * Initial balances cover any sequence of transfers, so all of them are applied.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest
+class TransferStressTest {
+    private static final int WALLETS = 10;
+    private static final int THREADS = 32;
+    private static final int TRANSFERS = 5000;
+    private static final long INITIAL_BALANCE = 10_000_000_000L;
+    @Container
+    public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:14");
+    @Autowired
+    private OperationService operationService;
+    @Autowired
+    private WalletRepository walletRepository;
+    @Autowired
+    private OperationRecordRepository operationRecordRepository;
+    private final List<UUID> walletIds = new ArrayList<>();
+
+    @DynamicPropertySource
+    public static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeEach
+    public void fillingDataBase() {
+        for (int i = 0; i < WALLETS; i++) {
+            Wallet wallet = new Wallet();
+            wallet.setBalance(INITIAL_BALANCE);
+            wallet.setOwnerFirstName("Test");
+            wallet.setOwnerLastName("Testerov");
+            walletIds.add(walletRepository.save(wallet).getId());
+        }
+    }
+
+    @AfterEach
+    public void clearDataBase() {
+        operationRecordRepository.deleteAllInBatch();
+        walletRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Concurrent opposite transfers neither deadlock nor lose money")
+    void whenTransferConcurrentlyInBothDirections_thenTotalBalanceIsKept() throws Exception {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(THREADS);
+        int[][] transfers = new int[TRANSFERS][];
+        List<Future<OperationResponse>> responses = new ArrayList<>(TRANSFERS);
+        for (int i = 0; i < TRANSFERS; i++) {
+            int source = ThreadLocalRandom.current().nextInt(WALLETS);
+            int target = (source + 1 + ThreadLocalRandom.current().nextInt(WALLETS - 1)) % WALLETS;
+            int amount = 1 + ThreadLocalRandom.current().nextInt(5000);
+            transfers[i] = new int[]{source, target, amount};
+            OperationRequest request = new OperationRequest();
+            request.setUserId(String.valueOf(walletIds.get(source)));
+            request.setTargetUserId(String.valueOf(walletIds.get(target)));
+            request.setOperationType("TRANSFER");
+            request.setAmount(String.valueOf(amount));
+            responses.add(requestThreads.submit(() -> operationService.processOperation(request)));
+        }
+        long[] expectedBalances = new long[WALLETS];
+        Arrays.fill(expectedBalances, INITIAL_BALANCE);
+        int applied = 0;
+        for (int i = 0; i < TRANSFERS; i++) {
+            if (responses.get(i).get(1, TimeUnit.MINUTES).isResult()) {
+                long amount = Money.toMinorUnits(BigDecimal.valueOf(transfers[i][2]));
+                expectedBalances[transfers[i][0]] -= amount;
+                expectedBalances[transfers[i][1]] += amount;
+                applied++;
+            }
+        }
+        requestThreads.shutdown();
+
+        Assertions.assertEquals(TRANSFERS, applied);
+        for (int i = 0; i < WALLETS; i++) {
+            Assertions.assertEquals(expectedBalances[i], walletRepository.findById(walletIds.get(i)).getBalance());
+        }
+        Assertions.assertEquals(2L * applied, operationRecordRepository.count());
+    }
+}
@@ -0,0 +1,88 @@
+package com.task.wallet;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.repositories.WalletRepository;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import java.util.UUID;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+/**
+ * Wallets table migrated by Liquibase is hash-partitioned and the statements of WalletRepository scan one partition.
+ * auto_explain logs the plan of every statement the server executes, so the plans checked are those of the SQL
+ * that Hibernate and the native queries actually send, with their bind parameters.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = "spring.liquibase.parameters.walletPartitions=8")
+class WalletPartitioningTest {
+    private static final Pattern PARTITION = Pattern.compile("wallets_p\\d+");
+    @Container
+    public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:14")
+            .withCommand("postgres", "-c", "fsync=off", "-c", "shared_preload_libraries=auto_explain",
+                    "-c", "auto_explain.log_min_duration=0");
+    @Autowired
+    private WalletRepository walletRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    public static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @AfterEach
+    public void clearDataBase() {
+        walletRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Wallets table is split into the configured count of hash partitions")
+    void whenMigrated_thenWalletsAreHashPartitioned() {
+        Assertions.assertEquals("p", jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = 'wallets'::regclass", String.class));
+        Assertions.assertEquals(8, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_inherits WHERE inhparent = 'wallets'::regclass", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Lookup and balance update by id are pruned to a single partition")
+    void whenQueryById_thenOnePartitionIsScanned() {
+        Wallet wallet = new Wallet();
+        wallet.setBalance(1_000L);
+        wallet.setOwnerFirstName("Test");
+        wallet.setOwnerLastName("Testerov");
+        UUID walletId = walletRepository.save(wallet).getId();
+
+        Assertions.assertEquals(1, scannedPartitions(() ->
+                Assertions.assertEquals(1_000L, walletRepository.findById(walletId).getBalance())));
+        Assertions.assertEquals(1, scannedPartitions(() ->
+                Assertions.assertEquals(2_000L, walletRepository.depositAmount(walletId, 1_000L).getBalance())));
+        Assertions.assertEquals(1, scannedPartitions(() ->
+                Assertions.assertEquals(1_500L, walletRepository.withdrawAmount(walletId, 500L).getBalance())));
+        Assertions.assertEquals(1, scannedPartitions(() ->
+                Assertions.assertEquals(1, walletRepository.compareAndSetBalance(walletId, 2, 1_000L))));
+    }
+
+    /**
+     * Partitions named in the plans logged while the repository call ran.
+     */
+    private long scannedPartitions(Runnable repositoryCall) {
+        int logOffset = postgres.getLogs().length();
+        repositoryCall.run();
+        String plans = postgres.getLogs().substring(logOffset);
+        Assertions.assertTrue(plans.contains("wallets"), "No plan is logged for the wallets table");
+        return PARTITION.matcher(plans).results()
+                .map(MatchResult::group)
+                .distinct()
+                .count();
+    }
+}
@@ -0,0 +1,85 @@
+package com.task.wallet.api_controller_commands;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.wallet.controllers.ApiController;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.exceptions.InvalidParameterException;
+import com.task.wallet.services.crud.CRUDService;
+import com.task.wallet.services.operations.OperationService;
+import com.task.wallet.services.operations.OperationType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import java.util.List;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ApiController.class)
+class CreateBatchOperationTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @MockBean
+    private OperationService operationService;
+    @MockBean
+    private CRUDService crudService;
+    private final String walletIdTest = "56897422-d900-4b5c-9d90-5bd95a65917f";
+
+    @Test
+    @DisplayName("Test for batch of operations with one failed item")
+    void whenCreateBatchOfOperations_thenReturnOperationResponsePerItemInInputOrder() throws Exception {
+        OperationRequest deposit = new OperationRequest();
+        deposit.setUserId(walletIdTest);
+        deposit.setAmount("100.00");
+        deposit.setOperationType("DEPOSIT");
+        OperationRequest withdraw = new OperationRequest();
+        withdraw.setUserId(walletIdTest);
+        withdraw.setAmount("1000000000.00");
+        withdraw.setOperationType("WITHDRAW");
+
+        OperationResponse depositResponse = new OperationResponse();
+        depositResponse.setResult(true);
+        depositResponse.setSuccess("Successful");
+        depositResponse.setOperationType(OperationType.DEPOSIT);
+        OperationResponse withdrawResponse = new OperationResponse();
+        withdrawResponse.setResult(false);
+        withdrawResponse.setSuccess("Unsuccessful");
+        withdrawResponse.setError("Balance of wallet is not enough for withdraw operation");
+        withdrawResponse.setOperationType(OperationType.WITHDRAW);
+
+        when(operationService.processOperations(anyList())).thenReturn(List.of(depositResponse, withdrawResponse));
+        mockMvc.perform(post("/api/v1/wallet/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(deposit, withdraw))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].result").value(true))
+                .andExpect(jsonPath("$[0].operationType").value(String.valueOf(OperationType.DEPOSIT)))
+                .andExpect(jsonPath("$[1].result").value(false))
+                .andExpect(jsonPath("$[1].error").value("Balance of wallet is not enough for withdraw operation"))
+                .andExpect(jsonPath("$[1].operationType").value(String.valueOf(OperationType.WITHDRAW)));
+    }
+
+    @Test
+    @DisplayName("Test for batch of operations exceeding the maximum size")
+    void whenCreateTooLargeBatchOfOperations_thenReturnInvalidParameterException() throws Exception {
+        String errorMessage = "Size of operation's batch must be from 0 to 100000";
+
+        when(operationService.processOperations(any())).thenThrow(new InvalidParameterException(errorMessage));
+        mockMvc.perform(post("/api/v1/wallet/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.statusCode").value(400))
+                .andExpect(jsonPath("$.message").value(errorMessage));
+    }
+}
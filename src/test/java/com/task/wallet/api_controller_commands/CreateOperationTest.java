@@ -4,6 +4,7 @@ import com.task.wallet.controllers.ApiController;
 import com.task.wallet.dto.requests.OperationRequest;
 import com.task.wallet.dto.responses.OperationResponse;
 import com.task.wallet.exceptions.InvalidParameterException;
+import com.task.wallet.exceptions.TooManyRequestsException;
 import com.task.wallet.exceptions.WalletNotFoundException;
 import com.task.wallet.repositories.WalletRepository;
 import com.task.wallet.services.crud.CRUDService;
@@ -17,16 +18,22 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ApiController.class)
@@ -54,7 +61,7 @@ class CreateOperationTest {
         request.setAmount(String.valueOf(createRandomAmountOfMoneyForOperation()));
         request.setOperationType(chooseRandomlyOperationType());
 
-        when(operationService.processOperation(any(OperationRequest.class)))
+        when(operationService.processOperationAsync(any(OperationRequest.class)))
                 .thenThrow(new WalletNotFoundException(errorMessage));
         mockMvc.perform(post("/api/v1/wallet")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -64,6 +71,41 @@ class CreateOperationTest {
                 .andExpect(jsonPath("$.message").value(errorMessage));
     }
 
+    @Test
+    @DisplayName("Test for creating operation whose asynchronous completion fails for non-existent wallet's id")
+    void whenOperationCompletesWithWalletNotFound_thenReturnWalletNotFoundException() throws Exception {
+        String errorMessage = "Wallet with id: " + walletIdTest + " is not found";
+        OperationRequest request = new OperationRequest();
+        request.setUserId(walletIdTest);
+        request.setAmount(String.valueOf(createRandomAmountOfMoneyForOperation()));
+        request.setOperationType("DEPOSIT");
+
+        when(operationService.processOperationAsync(any(OperationRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(new WalletNotFoundException(errorMessage)));
+        performOperation(request)
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.statusCode").value(404))
+                .andExpect(jsonPath("$.message").value(errorMessage));
+    }
+
+    @Test
+    @DisplayName("Test for creating operation rejected by admission control")
+    void whenOperationIsNotAdmitted_thenReturnTooManyRequestsWithRetryAfter() throws Exception {
+        OperationRequest request = new OperationRequest();
+        request.setUserId(walletIdTest);
+        request.setAmount(String.valueOf(createRandomAmountOfMoneyForOperation()));
+        request.setOperationType(chooseRandomlyOperationType());
+
+        when(operationService.processOperationAsync(any(OperationRequest.class)))
+                .thenThrow(new TooManyRequestsException("Service is overloaded, retry later", 3));
+        mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.statusCode").value(429));
+    }
+
     @Test
     @DisplayName("Test for creating operation with invalid parameters")
     void whenCreateOperationWithInvalidParameters_thenReturnInvalidParameterException() throws Exception {
@@ -74,7 +116,7 @@ class CreateOperationTest {
         request.setAmount(String.valueOf(0000000));
         request.setOperationType("INVALID");
 
-        when(operationService.processOperation(any(OperationRequest.class)))
+        when(operationService.processOperationAsync(any(OperationRequest.class)))
                 .thenThrow(new InvalidParameterException(errorMessage));
         mockMvc.perform(post("/api/v1/wallet")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -97,10 +139,8 @@ class CreateOperationTest {
         response.setResult(true);
         response.setOperationType(OperationType.DEPOSIT);
 
-        when(operationService.processOperation(any())).thenReturn(response);
-        mockMvc.perform(post("/api/v1/wallet")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request)))
+        when(operationService.processOperationAsync(any())).thenReturn(CompletableFuture.completedFuture(response));
+        performOperation(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.result").value(true))
                 .andExpect(jsonPath("$.operationType").value(String.valueOf(OperationType.DEPOSIT)))
@@ -120,10 +160,8 @@ class CreateOperationTest {
         response.setSuccess("Successful");
         response.setOperationType(OperationType.WITHDRAW);
 
-        when(operationService.processOperation(any())).thenReturn(response);
-        mockMvc.perform(post("/api/v1/wallet")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request)))
+        when(operationService.processOperationAsync(any())).thenReturn(CompletableFuture.completedFuture(response));
+        performOperation(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.result").value(true))
                 .andExpect(jsonPath("$.success").value("Successful"))
@@ -144,10 +182,8 @@ class CreateOperationTest {
         response.setError("Balance is not enough for withdraw operation");
         response.setOperationType(OperationType.WITHDRAW);
 
-        when(operationService.processOperation(any())).thenReturn(response);
-        mockMvc.perform(post("/api/v1/wallet")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(request)))
+        when(operationService.processOperationAsync(any())).thenReturn(CompletableFuture.completedFuture(response));
+        performOperation(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.result").value(false))
                 .andExpect(jsonPath("$.success").value("Unsuccessful"))
@@ -178,10 +214,8 @@ class CreateOperationTest {
                         response.setResult(true);
                         response.setOperationType(OperationType.DEPOSIT);
 
-                        when(operationService.processOperation(any())).thenReturn(response);
-                        mockMvc.perform(post("/api/v1/wallet")
-                                        .contentType(MediaType.APPLICATION_JSON)
-                                        .content(objectMapper.writeValueAsString(request)))
+                        when(operationService.processOperationAsync(any())).thenReturn(CompletableFuture.completedFuture(response));
+                        performOperation(request)
                                 .andExpect(status().isOk())
                                 .andExpect(jsonPath("$.result").value(true))
                                 .andExpect(jsonPath("$.operationType").value(String.valueOf(OperationType.DEPOSIT)))
@@ -195,10 +229,8 @@ class CreateOperationTest {
                         response.setSuccess("Successful");
                         response.setOperationType(OperationType.WITHDRAW);
 
-                        when(operationService.processOperation(any())).thenReturn(response);
-                        mockMvc.perform(post("/api/v1/wallet")
-                                        .contentType(MediaType.APPLICATION_JSON)
-                                        .content(objectMapper.writeValueAsString(request)))
+                        when(operationService.processOperationAsync(any())).thenReturn(CompletableFuture.completedFuture(response));
+                        performOperation(request)
                                 .andExpect(status().isOk())
                                 .andExpect(jsonPath("$.result").value(true))
                                 .andExpect(jsonPath("$.success").value("Successful"))
@@ -213,10 +245,8 @@ class CreateOperationTest {
                         response.setError("Balance is not enough for withdraw operation");
                         response.setOperationType(OperationType.WITHDRAW);
 
-                        when(operationService.processOperation(any())).thenReturn(response);
-                        mockMvc.perform(post("/api/v1/wallet")
-                                        .contentType(MediaType.APPLICATION_JSON)
-                                        .content(objectMapper.writeValueAsString(request)))
+                        when(operationService.processOperationAsync(any())).thenReturn(CompletableFuture.completedFuture(response));
+                        performOperation(request)
                                 .andExpect(status().isOk())
                                 .andExpect(jsonPath("$.result").value(false))
                                 .andExpect(jsonPath("$.success").value("Unsuccessful"))
@@ -235,6 +265,15 @@ class CreateOperationTest {
         Assertions.assertTrue(exceptions.isEmpty(), "The list of exceptions should be empty, but it contains errors");
     }
 
+    private ResultActions performOperation(OperationRequest operationRequest) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(post("/api/v1/wallet")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(operationRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(mvcResult));
+    }
+
     private String chooseRandomlyOperationType() {
         return Math.random() < 0.5 ? "DEPOSIT" : "WITHDRAW";
     }
@@ -0,0 +1,59 @@
+package com.task.wallet.api_controller_commands;
+import com.task.wallet.controllers.ApiController;
+import com.task.wallet.dto.OperationDto;
+import com.task.wallet.dto.OperationHistoryDto;
+import com.task.wallet.services.crud.CRUDService;
+import com.task.wallet.services.operations.OperationService;
+import com.task.wallet.services.operations.OperationType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ApiController.class)
+class GetWalletOperationsTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private OperationService operationService;
+    @MockBean
+    private CRUDService crudService;
+
+    @Test
+    @DisplayName("Test for getting page of wallet's operations")
+    void whenGetWalletOperations_thenReturnOperationHistoryDto() throws Exception {
+        String walletId = "56897422-d900-4b5c-9d90-5bd95a65917f";
+
+        OperationDto operationDto = new OperationDto();
+        operationDto.setSequence(42);
+        operationDto.setOperationType(OperationType.DEPOSIT);
+        operationDto.setAmount(new BigDecimal("10.00"));
+        operationDto.setBalance(new BigDecimal("183651.14"));
+        operationDto.setCreatedAt(Instant.parse("2025-06-07T10:15:30Z"));
+        OperationHistoryDto historyDto = new OperationHistoryDto();
+        historyDto.setWalletId(walletId);
+        historyDto.setOperations(List.of(operationDto));
+        historyDto.setNextBefore(42L);
+
+        when(crudService.getWalletOperations(eq(walletId), eq(43L), eq(1))).thenReturn(historyDto);
+        mockMvc.perform(get("/api/v1/wallet/{walletUuid}/operations", walletId)
+                        .param("before", "43")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.walletId").value(walletId))
+                .andExpect(jsonPath("$.operations[0].sequence").value(42))
+                .andExpect(jsonPath("$.operations[0].operationType").value(String.valueOf(OperationType.DEPOSIT)))
+                .andExpect(jsonPath("$.operations[0].balance").value(183651.14))
+                .andExpect(jsonPath("$.nextBefore").value(42));
+    }
+}
@@ -0,0 +1,185 @@
+package com.task.wallet.api_controller_commands;
+import com.task.wallet.controllers.StreamController;
+import com.task.wallet.dto.BalanceUpdateDto;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.exceptions.HandlerGlobalException;
+import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.services.WalletMetrics;
+import com.task.wallet.services.stream.BalanceStreamServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class StreamBalancesTest {
+    private final UUID walletId = UUID.fromString("56897422-d900-4b5c-9d90-5bd95a65917f");
+    private final UUID slowWalletId = UUID.fromString("d9b1d7db-5f4e-4ab5-a54b-a2b6c0c8f0a1");
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch slowClientReads = new CountDownLatch(1);
+    private volatile boolean slowClientStalled;
+    private final BalanceStreamServiceImpl balanceStreamService = new BalanceStreamServiceImpl(walletRepository,
+            new WalletMetrics(meterRegistry), 2, Duration.ofMinutes(1), Duration.ofMinutes(1), 1, Duration.ofMillis(200));
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new StreamController(balanceStreamService))
+            .setControllerAdvice(new HandlerGlobalException())
+            .setMessageConverters(new StringHttpMessageConverter(), new SlowClientConverter())
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        balanceStreamService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowClientReads.countDown();
+        balanceStreamService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Subscriber gets the current balance and then every published one")
+    void whenSubscribe_thenCurrentAndPublishedBalancesAreStreamed() throws Exception {
+        when(walletRepository.findByIdIn(anyCollection()))
+                .thenReturn(List.of(new Wallet(walletId, 183641_14L, "Moritz", "Marriner", 5)));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/wallet/stream").param("ids", String.valueOf(walletId)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = result.getResponse();
+        awaitTrue(() -> content(response).contains("\"balance\":183641.14"));
+
+        balanceStreamService.publish(walletId, 6, 183741_14L);
+        balanceStreamService.publish(UUID.randomUUID(), 1, 1L);
+
+        awaitTrue(() -> content(response).contains("\"balance\":183741.14"));
+        Assertions.assertTrue(content(response).contains("event:balance"));
+        Assertions.assertTrue(content(response).contains("\"sequence\":6"));
+        Assertions.assertEquals(2, content(response).split("event:balance").length - 1);
+        Assertions.assertEquals(1.0, meterRegistry.get("wallet.stream.subscribers").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Balance older than the last sent one of the wallet is not streamed")
+    void whenOlderBalanceIsPublished_thenItIsSkipped() throws Exception {
+        when(walletRepository.findByIdIn(anyCollection()))
+                .thenReturn(List.of(new Wallet(walletId, 183641_14L, "Moritz", "Marriner", 5)));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/wallet/stream").param("ids", String.valueOf(walletId)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = result.getResponse();
+        awaitTrue(() -> content(response).contains("\"sequence\":5"));
+
+        balanceStreamService.publish(walletId, 4, 183541_14L);
+        balanceStreamService.publish(walletId, 6, 183741_14L);
+
+        awaitTrue(() -> content(response).contains("\"sequence\":6"));
+        Assertions.assertFalse(content(response).contains("\"sequence\":4"));
+        Assertions.assertEquals(2, content(response).split("event:balance").length - 1);
+    }
+
+    @Test
+    @DisplayName("Subscriber whose write does not finish in time is dropped and does not hold up the others")
+    void whenWriteIsStuck_thenSubscriberIsDropped() throws Exception {
+        when(walletRepository.findByIdIn(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<UUID>>getArgument(0).contains(slowWalletId)
+                        ? List.of(new Wallet(slowWalletId, 1_00L, "Slow", "Client", 1))
+                        : List.of(new Wallet(walletId, 183641_14L, "Moritz", "Marriner", 5)));
+
+        MvcResult slowResult = mockMvc.perform(get("/api/v1/wallet/stream").param("ids", String.valueOf(slowWalletId)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitTrue(() -> content(slowResult.getResponse()).contains("\"balance\":1.00"));
+        slowClientStalled = true;
+        balanceStreamService.publish(slowWalletId, 2, 2_00L);
+        MockHttpServletResponse response = mockMvc.perform(get("/api/v1/wallet/stream")
+                        .param("ids", String.valueOf(walletId)))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+
+        awaitTrue(() -> content(response).contains("\"balance\":183641.14"));
+        balanceStreamService.publish(walletId, 6, 183741_14L);
+        awaitTrue(() -> content(response).contains("\"balance\":183741.14"));
+        Assertions.assertEquals(1.0, meterRegistry.get("wallet.stream.dropped").counter().count());
+        Assertions.assertEquals(1.0, meterRegistry.get("wallet.stream.subscribers").gauge().value());
+        balanceStreamService.publish(slowWalletId, 3, 3_00L);
+
+        slowClientReads.countDown();
+        slowResult.getAsyncResult(5_000);
+        Assertions.assertTrue(content(slowResult.getResponse()).contains("\"balance\":2.00"));
+        Assertions.assertFalse(content(slowResult.getResponse()).contains("\"balance\":3.00"));
+    }
+
+    @Test
+    @DisplayName("Too many wallets in one subscription are rejected")
+    void whenSubscribeTooManyWallets_thenReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/wallet/stream")
+                        .param("ids", String.valueOf(walletId), String.valueOf(UUID.randomUUID()),
+                                String.valueOf(UUID.randomUUID())))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Subscription to a non-existent wallet is rejected")
+    void whenSubscribeNonExistentWallet_thenReturnNotFound() throws Exception {
+        when(walletRepository.findByIdIn(anyCollection())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/wallet/stream").param("ids", String.valueOf(walletId)))
+                .andExpect(status().isNotFound());
+        Assertions.assertEquals(0.0, meterRegistry.get("wallet.stream.subscribers").gauge().value());
+    }
+
+    /**
+     * Stands for a client that stops reading: once stalled, writes of the slow wallet's balances block until released.
+     */
+    private class SlowClientConverter extends MappingJackson2HttpMessageConverter {
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            if (slowClientStalled && object instanceof BalanceUpdateDto update
+                    && update.getWalletId().equals(String.valueOf(slowWalletId))) {
+                try {
+                    slowClientReads.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            super.writeInternal(object, type, outputMessage);
+        }
+    }
+
+    private static String content(MockHttpServletResponse response) {
+        try {
+            return response.getContentAsString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Condition is not met in 5 s");
+            Thread.sleep(10);
+        }
+    }
+}
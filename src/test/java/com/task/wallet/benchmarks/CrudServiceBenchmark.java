@@ -0,0 +1,48 @@
+package com.task.wallet.benchmarks;
+import com.task.wallet.services.WalletMetrics;
+import com.task.wallet.dto.WalletDto;
+import com.task.wallet.services.crud.CRUDServiceImpl;
+import com.task.wallet.services.crud.WalletCache;
+import com.task.wallet.services.crud.WalletIdFilter;
+import com.task.wallet.support.InMemoryWallets;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CRUDServiceImpl.getDataWallet through the wallet cache against the in-memory repository stand-in.
+ * With a cache smaller than the key space the uniform distribution mostly misses, the skewed one mostly hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class CrudServiceBenchmark {
+    @Param({"UNIFORM", "SKEWED"})
+    public KeyDistribution distribution;
+    @Param({"100000"})
+    public int wallets;
+    @Param({"1000"})
+    public long cacheSize;
+
+    private InMemoryWallets inMemoryWallets;
+    private CRUDServiceImpl crudService;
+
+    @Setup
+    public void setUp() {
+        inMemoryWallets = new InMemoryWallets(wallets);
+        WalletCache walletCache = new WalletCache(inMemoryWallets.getWalletRepository(), new WalletMetrics(new SimpleMeterRegistry()),
+                new WalletIdFilter(null, false, 1000, 0.01, Duration.ofMinutes(1)),
+                cacheSize, Duration.ofSeconds(30), Duration.ofSeconds(10));
+        crudService = new CRUDServiceImpl(walletCache, inMemoryWallets.getOperationRecordRepository());
+    }
+
+    @Benchmark
+    public WalletDto getDataWallet() {
+        return crudService.getDataWallet(String.valueOf(distribution.next(inMemoryWallets.getWalletIds())));
+    }
+}
@@ -0,0 +1,63 @@
+package com.task.wallet.benchmarks;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.task.wallet.dto.WalletDto;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.services.operations.OperationType;
+import org.openjdk.jmh.annotations.*;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of the request and response bodies of the API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    private static final byte[] OPERATION_REQUEST = ("{\"userId\":\"56897422-d900-4b5c-9d90-5bd95a65917f\","
+            + "\"operationType\":\"DEPOSIT\",\"amount\":\"183641.14\"}").getBytes();
+
+    private ObjectReader operationRequestReader;
+    private ObjectWriter operationResponseWriter;
+    private ObjectWriter walletDtoWriter;
+    private OperationResponse operationResponse;
+    private WalletDto walletDto;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        operationRequestReader = objectMapper.readerFor(OperationRequest.class);
+        operationResponseWriter = objectMapper.writerFor(OperationResponse.class);
+        walletDtoWriter = objectMapper.writerFor(WalletDto.class);
+        operationResponse = new OperationResponse();
+        operationResponse.setResult(true);
+        operationResponse.setSuccess("Successful");
+        operationResponse.setOperationType(OperationType.DEPOSIT);
+        walletDto = new WalletDto();
+        walletDto.setId("56897422-d900-4b5c-9d90-5bd95a65917f");
+        walletDto.setBalance(new BigDecimal("183641.14"));
+        walletDto.setOwnerFirstName("Moritz");
+        walletDto.setOwnerLastName("Marriner");
+    }
+
+    @Benchmark
+    public OperationRequest readOperationRequest() throws Exception {
+        return operationRequestReader.readValue(OPERATION_REQUEST);
+    }
+
+    @Benchmark
+    public byte[] writeOperationResponse() throws Exception {
+        return operationResponseWriter.writeValueAsBytes(operationResponse);
+    }
+
+    @Benchmark
+    public byte[] writeWalletDto() throws Exception {
+        return walletDtoWriter.writeValueAsBytes(walletDto);
+    }
+}
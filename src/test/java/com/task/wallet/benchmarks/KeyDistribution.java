@@ -0,0 +1,34 @@
+package com.task.wallet.benchmarks;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How benchmark operations pick a wallet.
+ */
+public enum KeyDistribution {
+    /**
+     * Every wallet is equally likely.
+     */
+    UNIFORM {
+        @Override
+        public UUID next(List<UUID> walletIds) {
+            return walletIds.get(ThreadLocalRandom.current().nextInt(walletIds.size()));
+        }
+    },
+    /**
+     * 90% of operations go to 1% of wallets, like a few merchant wallets among many customers.
+     */
+    SKEWED {
+        @Override
+        public UUID next(List<UUID> walletIds) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int hotWallets = Math.max(1, walletIds.size() / 100);
+            return random.nextInt(10) < 9
+                    ? walletIds.get(random.nextInt(hotWallets))
+                    : walletIds.get(hotWallets + random.nextInt(walletIds.size() - hotWallets));
+        }
+    };
+
+    public abstract UUID next(List<UUID> walletIds);
+}
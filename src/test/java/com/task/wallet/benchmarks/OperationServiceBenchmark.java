@@ -0,0 +1,65 @@
+package com.task.wallet.benchmarks;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.services.operations.*;
+import com.task.wallet.services.stream.BalanceStreamServiceImpl;
+import com.task.wallet.support.InMemoryWallets;
+import org.openjdk.jmh.annotations.*;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OperationServiceImpl.processOperation from request to response against the in-memory repository stand-in,
+ * in both execution modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class OperationServiceBenchmark {
+    @Param({"ATOMIC", "BATCHED"})
+    public WriteMode writeMode;
+    @Param({"CALLER", "POOLED"})
+    public ExecutionMode executionMode;
+    @Param({"UNIFORM", "SKEWED"})
+    public KeyDistribution distribution;
+    @Param({"10000"})
+    public int wallets;
+
+    private InMemoryWallets inMemoryWallets;
+    private OperationServiceFixture fixture;
+    private OperationServiceImpl operationService;
+
+    @Setup
+    public void setUp() {
+        inMemoryWallets = new InMemoryWallets(wallets);
+        fixture = new OperationServiceFixture(inMemoryWallets.getWalletRepository(),
+                inMemoryWallets.getOperationRecordRepository());
+        operationService = fixture
+                .balanceStreamService(new BalanceStreamServiceImpl(inMemoryWallets.getWalletRepository(),
+                        fixture.getWalletMetrics(), 100, Duration.ofMinutes(30), Duration.ofSeconds(15), 1,
+                        Duration.ofSeconds(5)))
+                .writeMode(writeMode)
+                .executionMode(executionMode)
+                .batcherThreads(10)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.shutdown();
+    }
+
+    @Benchmark
+    public OperationResponse processOperation() {
+        OperationRequest request = new OperationRequest();
+        request.setUserId(String.valueOf(distribution.next(inMemoryWallets.getWalletIds())));
+        request.setOperationType(ThreadLocalRandom.current().nextBoolean() ? "DEPOSIT" : "WITHDRAW");
+        request.setAmount("10.00");
+        return operationService.processOperation(request);
+    }
+}
@@ -0,0 +1,109 @@
+package com.task.wallet.benchmarks;
+import org.openjdk.jmh.annotations.*;
+import org.testcontainers.containers.PostgreSQLContainer;
+import java.sql.*;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a group of ledger rows and balances to a real Postgres (requires Docker):
+ * SINGLE sends a statement per row as without hibernate.jdbc.batch_size, BATCHED sends them as one JDBC batch,
+ * REWRITTEN also sets reWriteBatchedInserts so the driver turns the batch of inserts into multi-row statements.
+ * The difference between modes is the count of round trips per group, as in application-production.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBatchingBenchmark {
+    public enum WriteMode { SINGLE, BATCHED, REWRITTEN }
+
+    private static final String INSERT_OPERATION = "INSERT INTO wallet_operations " +
+            "(wallet_id, sequence, operation_type, amount, balance, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_WALLET = "UPDATE wallets SET balance = ?, operation_sequence = ? WHERE id = ?";
+
+    @Param({"SINGLE", "BATCHED", "REWRITTEN"})
+    public WriteMode mode;
+    @Param({"500"})
+    public int groupSize;
+
+    private PostgreSQLContainer<?> postgres;
+    private Connection connection;
+    private UUID[] walletIds;
+    private long sequence;
+
+    @Setup
+    public void setUp() throws SQLException {
+        postgres = new PostgreSQLContainer<>("postgres:14");
+        postgres.start();
+        Properties properties = new Properties();
+        properties.setProperty("user", postgres.getUsername());
+        properties.setProperty("password", postgres.getPassword());
+        properties.setProperty("reWriteBatchedInserts", String.valueOf(mode == WriteMode.REWRITTEN));
+        properties.setProperty("prepareThreshold", "1");
+        connection = DriverManager.getConnection(postgres.getJdbcUrl(), properties);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE wallets (id UUID PRIMARY KEY, balance BIGINT NOT NULL, " +
+                    "operation_sequence BIGINT NOT NULL)");
+            statement.execute("CREATE TABLE wallet_operations (wallet_id UUID NOT NULL, sequence BIGINT NOT NULL, " +
+                    "operation_type VARCHAR(20) NOT NULL, amount BIGINT NOT NULL, balance BIGINT NOT NULL, " +
+                    "created_at TIMESTAMP WITH TIME ZONE NOT NULL, PRIMARY KEY (wallet_id, sequence))");
+        }
+        walletIds = new UUID[groupSize];
+        try (PreparedStatement insertWallet = connection.prepareStatement(
+                "INSERT INTO wallets (id, balance, operation_sequence) VALUES (?, 0, 0)")) {
+            for (int i = 0; i < groupSize; i++) {
+                walletIds[i] = UUID.randomUUID();
+                insertWallet.setObject(1, walletIds[i]);
+                insertWallet.addBatch();
+            }
+            insertWallet.executeBatch();
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+        postgres.stop();
+    }
+
+    /**
+     * One snapshot-like transaction: a deposit of 1 to every wallet of the group with its ledger row.
+     */
+    @Benchmark
+    public void writeGroup() throws SQLException {
+        sequence++;
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        try (PreparedStatement updateWallet = connection.prepareStatement(UPDATE_WALLET);
+             PreparedStatement insertOperation = connection.prepareStatement(INSERT_OPERATION)) {
+            for (UUID walletId : walletIds) {
+                updateWallet.setLong(1, sequence);
+                updateWallet.setLong(2, sequence);
+                updateWallet.setObject(3, walletId);
+                insertOperation.setObject(1, walletId);
+                insertOperation.setLong(2, sequence);
+                insertOperation.setString(3, "DEPOSIT");
+                insertOperation.setLong(4, 1L);
+                insertOperation.setLong(5, sequence);
+                insertOperation.setTimestamp(6, createdAt);
+                if (mode == WriteMode.SINGLE) {
+                    updateWallet.executeUpdate();
+                    insertOperation.executeUpdate();
+                } else {
+                    updateWallet.addBatch();
+                    insertOperation.addBatch();
+                }
+            }
+            if (mode != WriteMode.SINGLE) {
+                updateWallet.executeBatch();
+                insertOperation.executeBatch();
+            }
+        }
+        connection.commit();
+    }
+}
@@ -0,0 +1,34 @@
+package com.task.wallet.benchmarks;
+import com.task.wallet.services.ValidatorParameters;
+import org.openjdk.jmh.annotations.*;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Amount parsing: the validator against the float-based parsing it replaced and the plain BigDecimal constructor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorParametersBenchmark {
+    @Param({"250", "183641.14", "999999999999.99", "1.5E+3"})
+    public String amount;
+
+    @Benchmark
+    public long validateAmount() {
+        return ValidatorParameters.validateAmount(amount);
+    }
+
+    @Benchmark
+    public BigDecimal floatParsing() {
+        return BigDecimal.valueOf(Float.parseFloat(amount));
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalConstructor() {
+        return new BigDecimal(amount);
+    }
+}
@@ -0,0 +1,113 @@
+package com.task.wallet.benchmarks;
+import org.openjdk.jmh.annotations.*;
+import org.testcontainers.containers.PostgreSQLContainer;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup and balance update by id against a real Postgres (requires Docker) with the wallets table
+ * unpartitioned (partitions = 0) or hash-partitioned on id as by the db.changelog-partitioning.xml changesets.
+ * Ids are picked uniformly from the whole table, so most lookups miss the shared buffers at large row counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class WalletPartitioningBenchmark {
+    private static final int SAMPLED_IDS = 100_000;
+
+    @Param({"0", "16"})
+    public int partitions;
+    @Param({"10000000"})
+    public int wallets;
+
+    private PostgreSQLContainer<?> postgres;
+    private UUID[] walletIds;
+
+    @State(Scope.Thread)
+    public static class WalletConnection {
+        private Connection connection;
+        private PreparedStatement findById;
+        private PreparedStatement depositAmount;
+
+        @Setup
+        public void setUp(WalletPartitioningBenchmark benchmark) throws SQLException {
+            connection = DriverManager.getConnection(benchmark.postgres.getJdbcUrl(),
+                    benchmark.postgres.getUsername(), benchmark.postgres.getPassword());
+            findById = connection.prepareStatement(
+                    "SELECT id, balance, owner_first_name, owner_last_name, operation_sequence FROM wallets WHERE id = ?");
+            depositAmount = connection.prepareStatement("UPDATE wallets SET balance = balance + ?, "
+                    + "operation_sequence = operation_sequence + 1 WHERE id = ? RETURNING balance, operation_sequence");
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Setup
+    public void setUp() throws SQLException {
+        postgres = new PostgreSQLContainer<>("postgres:14");
+        postgres.start();
+        try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(),
+                postgres.getUsername(), postgres.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE wallets (id UUID NOT NULL, balance BIGINT NOT NULL DEFAULT 0, "
+                    + "owner_first_name VARCHAR(50) NOT NULL, owner_last_name VARCHAR(50) NOT NULL, "
+                    + "operation_sequence BIGINT NOT NULL DEFAULT 0, PRIMARY KEY (id))"
+                    + (partitions > 0 ? " PARTITION BY HASH (id)" : ""));
+            for (int remainder = 0; remainder < partitions; remainder++) {
+                statement.execute(String.format("CREATE TABLE wallets_p%d PARTITION OF wallets "
+                        + "FOR VALUES WITH (MODULUS %d, REMAINDER %d)", remainder, partitions, remainder));
+            }
+            statement.execute("INSERT INTO wallets (id, balance, owner_first_name, owner_last_name) "
+                    + "SELECT gen_random_uuid(), (random() * 50000000)::BIGINT, 'Moritz', 'Marriner' "
+                    + "FROM generate_series(1, " + wallets + ")");
+            statement.execute("VACUUM ANALYZE wallets");
+            walletIds = new UUID[SAMPLED_IDS];
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT id FROM wallets TABLESAMPLE BERNOULLI (1) LIMIT " + SAMPLED_IDS)) {
+                int count = 0;
+                while (resultSet.next()) {
+                    walletIds[count++] = resultSet.getObject(1, UUID.class);
+                }
+                walletIds = Arrays.copyOf(walletIds, count);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        postgres.stop();
+    }
+
+    @Benchmark
+    public long findById(WalletConnection walletConnection) throws SQLException {
+        walletConnection.findById.setObject(1, randomWalletId());
+        try (ResultSet resultSet = walletConnection.findById.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(2);
+        }
+    }
+
+    @Benchmark
+    public long depositAmount(WalletConnection walletConnection) throws SQLException {
+        walletConnection.depositAmount.setLong(1, 1L);
+        walletConnection.depositAmount.setObject(2, randomWalletId());
+        try (ResultSet resultSet = walletConnection.depositAmount.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private UUID randomWalletId() {
+        return walletIds[ThreadLocalRandom.current().nextInt(walletIds.length)];
+    }
+}
@@ -0,0 +1,160 @@
+package com.task.wallet.benchmarks;
+import org.openjdk.jmh.annotations.*;
+import org.testcontainers.containers.PostgreSQLContainer;
+import java.sql.*;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A deposit against a real Postgres (requires Docker) with the statements of each write mode:
+ * ATOMIC is the single UPDATE ... RETURNING, PESSIMISTIC is SELECT ... FOR UPDATE and UPDATE in one transaction,
+ * OPTIMISTIC reads without a lock and writes conditioned on operation_sequence, retrying with jittered backoff.
+ * Contention is set by the count of wallets the threads pick from, conflicts per operation are reported as a counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class WriteModeContentionBenchmark {
+    public enum ConcurrencyMode { ATOMIC, PESSIMISTIC, OPTIMISTIC }
+
+    private static final long BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Param({"ATOMIC", "PESSIMISTIC", "OPTIMISTIC"})
+    public ConcurrencyMode mode;
+    @Param({"1", "16", "10000"})
+    public int wallets;
+
+    private PostgreSQLContainer<?> postgres;
+    private UUID[] walletIds;
+
+    @State(Scope.Thread)
+    public static class WalletConnection {
+        private Connection connection;
+        private PreparedStatement deposit;
+        private PreparedStatement selectForUpdate;
+        private PreparedStatement select;
+        private PreparedStatement compareAndSet;
+
+        @Setup
+        public void setUp(WriteModeContentionBenchmark benchmark) throws SQLException {
+            connection = DriverManager.getConnection(benchmark.postgres.getJdbcUrl(),
+                    benchmark.postgres.getUsername(), benchmark.postgres.getPassword());
+            deposit = connection.prepareStatement("UPDATE wallets SET balance = balance + ?, "
+                    + "operation_sequence = operation_sequence + 1 WHERE id = ? RETURNING balance");
+            selectForUpdate = connection.prepareStatement(
+                    "SELECT balance, operation_sequence FROM wallets WHERE id = ? FOR UPDATE");
+            select = connection.prepareStatement("SELECT balance, operation_sequence FROM wallets WHERE id = ?");
+            compareAndSet = connection.prepareStatement("UPDATE wallets SET balance = ?, "
+                    + "operation_sequence = operation_sequence + 1 WHERE id = ? AND operation_sequence = ?");
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Conflicts {
+        public long conflicts;
+    }
+
+    @Setup
+    public void setUp() throws SQLException {
+        postgres = new PostgreSQLContainer<>("postgres:14");
+        postgres.start();
+        walletIds = new UUID[wallets];
+        try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(),
+                postgres.getUsername(), postgres.getPassword())) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE wallets (id UUID PRIMARY KEY, balance BIGINT NOT NULL, "
+                        + "operation_sequence BIGINT NOT NULL)");
+            }
+            try (PreparedStatement insertWallet = connection.prepareStatement(
+                    "INSERT INTO wallets (id, balance, operation_sequence) VALUES (?, 0, 0)")) {
+                for (int i = 0; i < wallets; i++) {
+                    walletIds[i] = UUID.randomUUID();
+                    insertWallet.setObject(1, walletIds[i]);
+                    insertWallet.addBatch();
+                }
+                insertWallet.executeBatch();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        postgres.stop();
+    }
+
+    @Benchmark
+    public void deposit(WalletConnection walletConnection, Conflicts conflicts) throws SQLException {
+        UUID walletId = walletIds[ThreadLocalRandom.current().nextInt(wallets)];
+        switch (mode) {
+            case ATOMIC -> depositAtomically(walletConnection, walletId);
+            case PESSIMISTIC -> depositPessimistically(walletConnection, walletId);
+            case OPTIMISTIC -> depositOptimistically(walletConnection, walletId, conflicts);
+        }
+    }
+
+    private void depositAtomically(WalletConnection walletConnection, UUID walletId) throws SQLException {
+        walletConnection.deposit.setLong(1, 1L);
+        walletConnection.deposit.setObject(2, walletId);
+        try (ResultSet resultSet = walletConnection.deposit.executeQuery()) {
+            resultSet.next();
+        }
+    }
+
+    private void depositPessimistically(WalletConnection walletConnection, UUID walletId) throws SQLException {
+        Connection connection = walletConnection.connection;
+        connection.setAutoCommit(false);
+        try {
+            walletConnection.selectForUpdate.setObject(1, walletId);
+            long balance;
+            long sequence;
+            try (ResultSet resultSet = walletConnection.selectForUpdate.executeQuery()) {
+                resultSet.next();
+                balance = resultSet.getLong(1);
+                sequence = resultSet.getLong(2);
+            }
+            compareAndSet(walletConnection, walletId, balance + 1, sequence);
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void depositOptimistically(WalletConnection walletConnection, UUID walletId,
+                                       Conflicts conflicts) throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            walletConnection.select.setObject(1, walletId);
+            long balance;
+            long sequence;
+            try (ResultSet resultSet = walletConnection.select.executeQuery()) {
+                resultSet.next();
+                balance = resultSet.getLong(1);
+                sequence = resultSet.getLong(2);
+            }
+            if (compareAndSet(walletConnection, walletId, balance + 1, sequence)) {
+                return;
+            }
+            conflicts.conflicts++;
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong((BACKOFF_NANOS << Math.min(attempt, 10)) + 1));
+        }
+    }
+
+    private boolean compareAndSet(WalletConnection walletConnection, UUID walletId,
+                                  long balance, long sequence) throws SQLException {
+        walletConnection.compareAndSet.setLong(1, balance);
+        walletConnection.compareAndSet.setObject(2, walletId);
+        walletConnection.compareAndSet.setLong(3, sequence);
+        return walletConnection.compareAndSet.executeUpdate() == 1;
+    }
+}
@@ -0,0 +1,97 @@
+package com.task.wallet.datasource;
+import com.task.wallet.services.WalletMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource firstReplica = mock(DataSource.class);
+    private final DataSource secondReplica = mock(DataSource.class);
+    private final ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary,
+            List.of(firstReplica, secondReplica), new WalletMetrics(meterRegistry), Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+    @Test
+    @DisplayName("Read-only connections go to the healthy replicas in turn, the others to the primary")
+    void whenReplicasAreHealthy_thenReadOnlyConnectionsAreSpreadOverThem() throws Exception {
+        mockDatabase(primary, 0);
+        mockDatabase(firstReplica, 0);
+        mockDatabase(secondReplica, 0);
+        dataSource.checkReplicas();
+        clearInvocations(primary, firstReplica, secondReplica);
+
+        for (int i = 0; i < 4; i++) {
+            execute(true);
+        }
+        execute(false);
+
+        verify(firstReplica, times(2)).getConnection();
+        verify(secondReplica, times(2)).getConnection();
+        verify(primary, times(1)).getConnection();
+        Assertions.assertEquals(2.0, meterRegistry.get("wallet.datasource.replicas.healthy").gauge().value());
+        Assertions.assertEquals(4.0, meterRegistry.get("wallet.datasource.reads").tag("target", "replica").counter().count());
+    }
+
+    @Test
+    @DisplayName("A lagging or unreachable replica is skipped, without healthy replicas reads go to the primary")
+    void whenReplicasAreUnhealthy_thenReadsFallBackToPrimary() throws Exception {
+        mockDatabase(primary, 0);
+        mockDatabase(firstReplica, 60_000);
+        when(secondReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        execute(true);
+        dataSource.checkReplicas();
+        clearInvocations(primary, firstReplica, secondReplica);
+
+        execute(true);
+
+        verify(primary, times(1)).getConnection();
+        verify(firstReplica, never()).getConnection();
+        Assertions.assertEquals(0.0, meterRegistry.get("wallet.datasource.replicas.healthy").gauge().value());
+        Assertions.assertEquals(2.0, meterRegistry.get("wallet.datasource.reads").tag("target", "primary").counter().count());
+    }
+
+    @Test
+    @DisplayName("A replica that refuses a connection after its check passed is replaced by the primary")
+    void whenHealthyReplicaRefusesConnection_thenReadGoesToPrimary() throws Exception {
+        mockDatabase(primary, 0);
+        mockDatabase(firstReplica, 0);
+        when(secondReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        dataSource.checkReplicas();
+        when(firstReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        clearInvocations(primary);
+
+        execute(true);
+
+        verify(primary, times(1)).getConnection();
+    }
+
+    private void execute(boolean readOnly) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(readOnly);
+            connection.createStatement().close();
+        }
+    }
+
+    private static void mockDatabase(DataSource database, long lagMillis) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(database.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(lagMillis);
+    }
+}
@@ -0,0 +1,84 @@
+package com.task.wallet.services;
+import com.task.wallet.exceptions.InvalidParameterException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.math.BigDecimal;
+import java.util.Random;
+
+class ValidatorParametersTest {
+    private static final int SAMPLES = 100_000;
+
+    @Test
+    @DisplayName("Any valid plain amount is parsed to the minor units of new BigDecimal(String)")
+    void whenValidateGeneratedPlainAmounts_thenValueEqualsBigDecimalConstructor() {
+        Random random = new Random(20250607L);
+        for (int i = 0; i < SAMPLES; i++) {
+            String amountStr = generatePlainAmount(random);
+            BigDecimal expected = new BigDecimal(amountStr);
+            if (expected.signum() == 0 || expected.compareTo(ValidatorParameters.MAX_AMOUNT) > 0) {
+                Assertions.assertThrows(InvalidParameterException.class,
+                        () -> ValidatorParameters.validateAmount(amountStr), amountStr);
+            } else {
+                Assertions.assertEquals(Money.toMinorUnits(expected), ValidatorParameters.validateAmount(amountStr), amountStr);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Amounts in other notations keep the exact value of new BigDecimal(String)")
+    void whenValidateGeneratedScientificAmounts_thenValueEqualsBigDecimalConstructor() {
+        Random random = new Random(20250608L);
+        for (int i = 0; i < SAMPLES; i++) {
+            long unscaled = 1 + (long) (random.nextDouble() * 99_999_999L);
+            int exponent = random.nextInt(7) - 2;
+            String amountStr = "+" + unscaled + "E" + exponent;
+            BigDecimal expected = new BigDecimal(amountStr);
+            if (expected.compareTo(ValidatorParameters.MAX_AMOUNT) > 0
+                    || expected.stripTrailingZeros().scale() > ValidatorParameters.MAX_AMOUNT_SCALE) {
+                Assertions.assertThrows(InvalidParameterException.class,
+                        () -> ValidatorParameters.validateAmount(amountStr), amountStr);
+            } else {
+                Assertions.assertEquals(Money.toMinorUnits(expected), ValidatorParameters.validateAmount(amountStr), amountStr);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Large amounts are not rounded to float precision")
+    void whenValidateLargeAmount_thenValueIsExact() {
+        Assertions.assertEquals(12_345_678_901_234L, ValidatorParameters.validateAmount("123456789012.34"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", " ", ".", "0", "0.00", "-5", "-0.01", "NaN", "Infinity", "-Infinity",
+            "1.001", "1e-3", "1000000000000.01", "2e12", "12,5", "1.2.3", "0x10", "abc"})
+    @DisplayName("Malformed, non-positive, too precise and too large amounts are rejected")
+    void whenValidateInvalidAmount_thenThrowInvalidParameterException(String amountStr) {
+        Assertions.assertThrows(InvalidParameterException.class, () -> ValidatorParameters.validateAmount(amountStr));
+    }
+
+    @Test
+    @DisplayName("Null amount is rejected")
+    void whenValidateNullAmount_thenThrowInvalidParameterException() {
+        Assertions.assertThrows(InvalidParameterException.class, () -> ValidatorParameters.validateAmount(null));
+    }
+
+    private String generatePlainAmount(Random random) {
+        StringBuilder amount = new StringBuilder();
+        int integerDigits = 1 + random.nextInt(14);
+        for (int i = 0; i < integerDigits; i++) {
+            amount.append((char) ('0' + random.nextInt(10)));
+        }
+        int fractionDigits = random.nextInt(ValidatorParameters.MAX_AMOUNT_SCALE + 1);
+        if (fractionDigits > 0) {
+            amount.append('.');
+            for (int i = 0; i < fractionDigits; i++) {
+                amount.append((char) ('0' + random.nextInt(10)));
+            }
+        }
+        return amount.toString();
+    }
+}
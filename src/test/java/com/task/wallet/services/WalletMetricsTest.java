@@ -0,0 +1,29 @@
+package com.task.wallet.services;
+import com.task.wallet.services.operations.OperationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class WalletMetricsTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WalletMetrics walletMetrics = new WalletMetrics(meterRegistry);
+
+    @Test
+    @DisplayName("Meters are registered once per combination of tags and accumulate across calls")
+    void whenRecordedRepeatedly_thenMetersAreReused() {
+        for (int i = 0; i < 3; i++) {
+            walletMetrics.recordOperation(OperationType.DEPOSIT, "success", walletMetrics.start());
+            walletMetrics.countRejected(OperationType.WITHDRAW, "insufficient_balance");
+        }
+        walletMetrics.recordOperation(OperationType.DEPOSIT, "rejected", walletMetrics.start());
+
+        Assertions.assertEquals(3, meterRegistry.get("wallet.operations")
+                .tags("operation.type", "DEPOSIT", "outcome", "success").timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("wallet.operations")
+                .tags("operation.type", "DEPOSIT", "outcome", "rejected").timer().count());
+        Assertions.assertEquals(3.0, meterRegistry.get("wallet.operations.rejected")
+                .tags("operation.type", "WITHDRAW", "reason", "insufficient_balance").counter().count());
+        Assertions.assertEquals(2, meterRegistry.get("wallet.operations").timers().size());
+    }
+}
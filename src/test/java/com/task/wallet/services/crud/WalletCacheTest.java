@@ -0,0 +1,55 @@
+package com.task.wallet.services.crud;
+import com.task.wallet.services.WalletMetrics;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.repositories.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import static org.mockito.Mockito.*;
+
+class WalletCacheTest {
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final WalletCache walletCache =
+            new WalletCache(walletRepository, new WalletMetrics(new SimpleMeterRegistry()),
+                new WalletIdFilter(null, false, 1000, 0.01, Duration.ofMinutes(1)), 100, Duration.ofMinutes(1), Duration.ofSeconds(10));
+    private final UUID walletId = UUID.fromString("56897422-d900-4b5c-9d90-5bd95a65917f");
+
+    @Test
+    @DisplayName("Repeated reads are served from cache until the wallet is invalidated, then read from the primary")
+    void whenReadWalletTwiceAndInvalidate_thenRepositoryIsHitOnlyOnMiss() {
+        when(walletRepository.findReadOnlyById(walletId))
+                .thenReturn(new Wallet(walletId, 18_364_114L, "Moritz", "Marriner", 0));
+        when(walletRepository.findById(walletId))
+                .thenReturn(new Wallet(walletId, 18_365_114L, "Moritz", "Marriner", 0));
+
+        Assertions.assertEquals(18_364_114L, walletCache.findById(walletId).getBalance());
+        Assertions.assertEquals(18_364_114L, walletCache.findById(walletId).getBalance());
+        walletCache.invalidate(walletId);
+        Assertions.assertEquals(18_365_114L, walletCache.findById(walletId).getBalance());
+
+        verify(walletRepository).findReadOnlyById(walletId);
+        verify(walletRepository).findById(walletId);
+        Assertions.assertEquals(1, walletCache.stats().hitCount());
+        Assertions.assertEquals(2, walletCache.stats().missCount());
+    }
+
+    @Test
+    @DisplayName("Ids rejected by the id filter are reported as absent without a query")
+    void whenIdFilterRejectsId_thenRepositoryIsNotHit() {
+        WalletIdFilter walletIdFilter = mock(WalletIdFilter.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        WalletCache filteredCache = new WalletCache(walletRepository, new WalletMetrics(meterRegistry),
+                walletIdFilter, 100, Duration.ofMinutes(1), Duration.ofSeconds(10));
+
+        Assertions.assertNull(filteredCache.findById(walletId));
+        Assertions.assertTrue(filteredCache.findAllById(List.of(walletId, UUID.randomUUID())).isEmpty());
+
+        verify(walletRepository, never()).findReadOnlyById(any(UUID.class));
+        verify(walletRepository, never()).findByIdIn(anyCollection());
+        Assertions.assertEquals(3, meterRegistry.get("wallet.id-filter.rejected").counter().count());
+    }
+}
@@ -0,0 +1,64 @@
+package com.task.wallet.services.crud;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class WalletExportServiceImplTest {
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Statement statement = mock(Statement.class);
+    private final WalletExportServiceImpl walletExportService =
+            new WalletExportServiceImpl(dataSource, new ObjectMapper(), 500);
+
+    @BeforeEach
+    void mockCursor() throws Exception {
+        Connection connection = mock(Connection.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString("id"))
+                .thenReturn("56897422-d900-4b5c-9d90-5bd95a65917f", "3ae3a7e4-6a38-4a4b-9c53-2d7a1f0d5c11");
+        when(resultSet.getLong("balance")).thenReturn(18_364_114L, 500L);
+        when(resultSet.getString("owner_first_name")).thenReturn("Moritz", "Saoirse, Jr.");
+        when(resultSet.getString("owner_last_name")).thenReturn("Marriner", "Mulligan");
+    }
+
+    @Test
+    @DisplayName("CSV export writes a header and a row per wallet, quoting fields with separators")
+    void whenExportCsv_thenWriteRowPerWallet() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        walletExportService.exportWallets(ExportFormat.CSV, output);
+
+        Assertions.assertEquals("""
+                id,balance,owner_first_name,owner_last_name
+                56897422-d900-4b5c-9d90-5bd95a65917f,183641.14,Moritz,Marriner
+                3ae3a7e4-6a38-4a4b-9c53-2d7a1f0d5c11,5.00,"Saoirse, Jr.",Mulligan
+                """, output.toString(StandardCharsets.UTF_8));
+        verify(statement).setFetchSize(500);
+    }
+
+    @Test
+    @DisplayName("NDJSON export writes a WalletDto line per wallet")
+    void whenExportNdjson_thenWriteWalletPerLine() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        walletExportService.exportWallets(ExportFormat.NDJSON, output);
+
+        String[] wallets = output.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(2, wallets.length);
+        Assertions.assertTrue(wallets[0].contains("\"balance\":183641.14"));
+        Assertions.assertTrue(wallets[1].contains("\"ownerFirstName\":\"Saoirse, Jr.\""));
+    }
+}
@@ -0,0 +1,74 @@
+package com.task.wallet.services.crud;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class WalletIdFilterTest {
+    private static final int WALLETS = 10_000;
+    private final DataSource dataSource = mock(DataSource.class);
+    private final WalletIdFilter walletIdFilter = new WalletIdFilter(dataSource, true, WALLETS, 0.01, Duration.ofMinutes(1));
+
+    @Test
+    @DisplayName("Every stored or added id is possibly contained, unknown ids are mostly rejected")
+    void whenFilterIsBuilt_thenUnknownIdsAreRejected() throws Exception {
+        List<UUID> walletIds = new ArrayList<>();
+        for (int i = 0; i < WALLETS; i++) {
+            walletIds.add(UUID.randomUUID());
+        }
+        mockWallets(walletIds);
+        UUID unknownWalletId = UUID.randomUUID();
+        Assertions.assertTrue(walletIdFilter.mightContain(unknownWalletId));
+
+        walletIdFilter.rebuild();
+        UUID createdWalletId = UUID.randomUUID();
+        walletIdFilter.add(createdWalletId);
+
+        Assertions.assertTrue(walletIds.stream().allMatch(walletIdFilter::mightContain));
+        Assertions.assertTrue(walletIdFilter.mightContain(createdWalletId));
+        int falsePositives = 0;
+        for (int i = 0; i < WALLETS; i++) {
+            if (walletIdFilter.mightContain(UUID.randomUUID())) {
+                falsePositives++;
+            }
+        }
+        Assertions.assertTrue(falsePositives < WALLETS * 0.03, "False positives: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("A failed build keeps reporting every id as possibly existing")
+    void whenBuildFails_thenNothingIsRejected() throws Exception {
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        walletIdFilter.rebuild();
+
+        Assertions.assertTrue(walletIdFilter.mightContain(UUID.randomUUID()));
+    }
+
+    private void mockWallets(List<UUID> walletIds) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        Iterator<UUID> rows = walletIds.iterator();
+        UUID[] row = new UUID[1];
+        when(resultSet.next()).thenAnswer(invocation -> {
+            row[0] = rows.hasNext() ? rows.next() : null;
+            return row[0] != null;
+        });
+        when(resultSet.getObject(1, UUID.class)).thenAnswer(invocation -> row[0]);
+    }
+}
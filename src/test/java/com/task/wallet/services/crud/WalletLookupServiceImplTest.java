@@ -0,0 +1,52 @@
+package com.task.wallet.services.crud;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.services.WalletMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class WalletLookupServiceImplTest {
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final WalletCache walletCache =
+            new WalletCache(walletRepository, new WalletMetrics(new SimpleMeterRegistry()),
+                new WalletIdFilter(null, false, 1000, 0.01, Duration.ofMinutes(1)), 100, Duration.ofMinutes(1), Duration.ofSeconds(10));
+    private final WalletLookupServiceImpl walletLookupService =
+            new WalletLookupServiceImpl(walletCache, new ObjectMapper(), 2);
+    private final UUID walletId = UUID.fromString("56897422-d900-4b5c-9d90-5bd95a65917f");
+    private final UUID cachedWalletId = UUID.fromString("3ae3a7e4-6a38-4a4b-9c53-2d7a1f0d5c11");
+    private final UUID unknownWalletId = UUID.fromString("0b8e4a1c-7d2f-4e6a-8f3b-5c9d1e2a4b60");
+
+    @Test
+    @DisplayName("Every non-blank line gets a wallet or an error line in input order, resolved by a query per chunk")
+    void whenLookupWallets_thenWriteWalletPerLineInInputOrder() throws Exception {
+        when(walletRepository.findReadOnlyById(cachedWalletId))
+                .thenReturn(new Wallet(cachedWalletId, 500L, "Saoirse", "Mulligan", 0));
+        when(walletRepository.findByIdIn(anyCollection()))
+                .thenReturn(List.of(new Wallet(walletId, 18_364_114L, "Moritz", "Marriner", 0)));
+        walletCache.findById(cachedWalletId);
+        String lines = walletId + "\n" + cachedWalletId + "\n\nnot-a-uuid\n" + unknownWalletId + "\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        walletLookupService.lookupWallets(new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8)), output);
+
+        String[] wallets = output.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(4, wallets.length);
+        Assertions.assertTrue(wallets[0].contains("\"balance\":183641.14"));
+        Assertions.assertTrue(wallets[1].contains("\"ownerFirstName\":\"Saoirse\""));
+        Assertions.assertTrue(wallets[2].contains("\"error\":\"Invalid id's format\""));
+        Assertions.assertTrue(wallets[3].contains("\"error\":\"Wallet with id: " + unknownWalletId + " is not found\""));
+        verify(walletRepository).findByIdIn(List.of(walletId));
+        verify(walletRepository).findByIdIn(List.of(unknownWalletId));
+    }
+}
@@ -0,0 +1,71 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.exceptions.TooManyRequestsException;
+import com.task.wallet.services.WalletMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.UUID;
+
+class AdmissionControlTest {
+    private final WalletMetrics walletMetrics = new WalletMetrics(new SimpleMeterRegistry());
+    private final UUID walletId = UUID.fromString("56897422-d900-4b5c-9d90-5bd95a65917f");
+
+    @Test
+    @DisplayName("Operations beyond the wallet's burst are rejected with Retry-After while other wallets are admitted")
+    void whenWalletExhaustsBurst_thenItsOperationsAreRejected() {
+        AdmissionControl admissionControl = new AdmissionControl(walletMetrics, true,
+                100, 10, 1000, Duration.ofSeconds(1), 0.5, 3, 1000);
+
+        for (int i = 0; i < 3; i++) {
+            admissionControl.admit(walletId).close();
+        }
+        TooManyRequestsException rejection =
+                Assertions.assertThrows(TooManyRequestsException.class, () -> admissionControl.admit(walletId));
+
+        Assertions.assertEquals(2, rejection.getRetryAfterSeconds());
+        admissionControl.admit(UUID.randomUUID()).close();
+    }
+
+    @Test
+    @DisplayName("Wallets are not limited when the per-wallet rate is not set")
+    void whenPerWalletRateIsZero_thenWalletIsNotLimited() {
+        AdmissionControl admissionControl = new AdmissionControl(walletMetrics, true,
+                100, 10, 1000, Duration.ofSeconds(1), 0, 0, 1000);
+
+        for (int i = 0; i < 1000; i++) {
+            admissionControl.admit(walletId).close();
+        }
+    }
+
+    @Test
+    @DisplayName("Operations beyond the in-flight limit are rejected until a permit is closed")
+    void whenInFlightLimitIsReached_thenOperationsAreRejected() {
+        AdmissionControl admissionControl = new AdmissionControl(walletMetrics, true,
+                2, 2, 2, Duration.ofSeconds(1), 1000, 1000, 1000);
+
+        AdmissionControl.Permit first = admissionControl.admit(null);
+        AdmissionControl.Permit second = admissionControl.admit(null);
+        Assertions.assertThrows(TooManyRequestsException.class, () -> admissionControl.admit(null));
+        first.close();
+
+        admissionControl.admit(null).close();
+        second.close();
+    }
+
+    @Test
+    @DisplayName("Slow operations shrink the in-flight limit down to its minimum")
+    void whenOperationsAreSlowerThanTarget_thenLimitDecreases() throws Exception {
+        AdmissionControl admissionControl = new AdmissionControl(walletMetrics, true,
+                100, 80, 1000, Duration.ofNanos(1), 1000, 1000, 1000);
+
+        for (int i = 0; i < 5; i++) {
+            AdmissionControl.Permit permit = admissionControl.admit(null);
+            Thread.sleep(1);
+            permit.close();
+        }
+
+        Assertions.assertEquals(80, admissionControl.limit());
+    }
+}
@@ -0,0 +1,67 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.entities.OperationRecord;
+import com.task.wallet.exceptions.IdempotencyConflictException;
+import com.task.wallet.repositories.OperationRecordRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import static org.mockito.Mockito.*;
+
+class IdempotencyStoreTest {
+    private final OperationRecordRepository operationRecordRepository = mock(OperationRecordRepository.class);
+    private final IdempotencyStore idempotencyStore =
+            new IdempotencyStore(operationRecordRepository, 1000, Duration.ofHours(24));
+    private final UUID walletId = UUID.fromString("56897422-d900-4b5c-9d90-5bd95a65917f");
+    private final UUID otherWalletId = UUID.fromString("4a59f833-6120-4461-9963-dbdfac264024");
+
+    @Test
+    @DisplayName("Same idempotency key of different wallets belongs to different operations")
+    void whenKeyIsRememberedForWallet_thenOtherWalletDoesNotSeeIt() {
+        WalletOperation operation = new WalletOperation(walletId, OperationType.DEPOSIT, 1_000L, "key-1");
+        idempotencyStore.remember(operation, OperationResponses.success(OperationType.DEPOSIT));
+
+        Assertions.assertTrue(idempotencyStore.find(operation).isResult());
+        Assertions.assertNull(idempotencyStore.find(
+                new WalletOperation(otherWalletId, OperationType.DEPOSIT, 1_000L, "key-1")));
+    }
+
+    @Test
+    @DisplayName("Idempotency key reused for another amount is a conflict")
+    void whenKeyIsReusedForAnotherAmount_thenThrowIdempotencyConflictException() {
+        idempotencyStore.remember(new WalletOperation(walletId, OperationType.DEPOSIT, 1_000L, "key-1"),
+                OperationResponses.success(OperationType.DEPOSIT));
+
+        Assertions.assertThrows(IdempotencyConflictException.class, () -> idempotencyStore.find(
+                new WalletOperation(walletId, OperationType.DEPOSIT, 2_000L, "key-1")));
+        Assertions.assertThrows(IdempotencyConflictException.class, () -> idempotencyStore.find(
+                new WalletOperation(walletId, OperationType.WITHDRAW, 1_000L, "key-1")));
+    }
+
+    @Test
+    @DisplayName("Transfer found in the ledger matches the request by its debited amount and counterparty")
+    void whenTransferIsInLedger_thenItMatchesTheSameRequestOnly() {
+        when(operationRecordRepository.findByWalletIdAndIdempotencyKey(walletId, "transfer-1")).thenReturn(
+                new OperationRecord(walletId, 3, OperationType.TRANSFER, -4_000L, 6_000L, Instant.now(),
+                        "transfer-1", otherWalletId));
+
+        OperationResponse response = idempotencyStore.find(
+                new WalletOperation(walletId, OperationType.TRANSFER, 4_000L, "transfer-1", otherWalletId));
+
+        Assertions.assertTrue(response.isResult());
+        Assertions.assertThrows(IdempotencyConflictException.class, () -> idempotencyStore.find(
+                new WalletOperation(walletId, OperationType.TRANSFER, 4_000L, "transfer-1", UUID.randomUUID())));
+    }
+
+    @Test
+    @DisplayName("Rejected operation is not remembered, so its retry is applied anew")
+    void whenOperationIsRejected_thenItIsNotRemembered() {
+        WalletOperation operation = new WalletOperation(walletId, OperationType.WITHDRAW, 1_000L, "key-1");
+        idempotencyStore.remember(operation, OperationResponses.notEnoughBalance());
+
+        Assertions.assertNull(idempotencyStore.find(operation));
+    }
+}
@@ -0,0 +1,70 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.entities.OperationRecord;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.repositories.WalletRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import java.util.List;
+import java.util.UUID;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OperationBatchTest {
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final OperationRecordRepository operationRecordRepository = mock(OperationRecordRepository.class);
+    private final UUID walletId = UUID.fromString("56897422-d900-4b5c-9d90-5bd95a65917f");
+    private final OperationServiceFixture fixture = new OperationServiceFixture(walletRepository, operationRecordRepository);
+
+    @AfterEach
+    void tearDown() {
+        fixture.shutdown();
+    }
+
+    @Test
+    @DisplayName("Idempotency keys of a batch are looked up per wallet's batch, not per item")
+    void whenProcessBatch_thenKeysAreNotLookedUpPerItem() {
+        when(walletRepository.findByIdForUpdate(walletId)).thenReturn(new Wallet(walletId, 10_000L, "Moritz", "Marriner", 3));
+
+        List<OperationResponse> responses = fixture.build()
+                .processOperations(List.of(request("key-1"), request("key-2"), request("key-3")));
+
+        responses.forEach(response -> Assertions.assertTrue(response.isResult()));
+        verify(operationRecordRepository, never()).findByWalletIdAndIdempotencyKey(any(), any());
+        verify(operationRecordRepository, atLeastOnce()).findByWalletIdAndIdempotencyKeyIn(eq(walletId), anyCollection());
+    }
+
+    @Test
+    @DisplayName("Item violating a constraint other than its idempotency key fails alone instead of the whole batch")
+    void whenItemViolatesConstraint_thenOnlyItFails() {
+        when(walletRepository.findByIdForUpdate(walletId)).thenReturn(new Wallet(walletId, 10_000L, "Moritz", "Marriner", 3));
+        when(operationRecordRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<OperationRecord> records = invocation.getArgument(0);
+            if (records.stream().anyMatch(record -> "key-2".equals(record.getIdempotencyKey()))) {
+                throw new DataIntegrityViolationException("operation_records_check");
+            }
+            return records;
+        });
+
+        List<OperationResponse> responses = fixture.build()
+                .processOperations(List.of(request("key-1"), request("key-2"), request("key-3")));
+
+        Assertions.assertTrue(responses.get(0).isResult());
+        Assertions.assertFalse(responses.get(1).isResult());
+        Assertions.assertTrue(responses.get(2).isResult());
+    }
+
+    private OperationRequest request(String idempotencyKey) {
+        OperationRequest operationRequest = new OperationRequest();
+        operationRequest.setUserId(walletId.toString());
+        operationRequest.setOperationType("DEPOSIT");
+        operationRequest.setAmount("10.00");
+        operationRequest.setIdempotencyKey(idempotencyKey);
+        return operationRequest;
+    }
+}
@@ -0,0 +1,63 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.support.InMemoryWallets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Concurrent deposits through every execution mode and the write modes that complete the operation differently:
+ * ATOMIC before processOperationAsync returns, BATCHED later on the batcher's thread.
+ */
+class OperationExecutionModeTest {
+    private static final int REQUEST_THREADS = 16;
+    private static final int OPERATIONS = 2000;
+    private static final int WALLETS = 20;
+
+    @ParameterizedTest
+    @CsvSource({"CALLER, ATOMIC", "CALLER, BATCHED", "POOLED, ATOMIC", "POOLED, BATCHED"})
+    @DisplayName("Every concurrent deposit is applied exactly once in each execution and write mode")
+    void whenDepositConcurrently_thenEveryDepositIsApplied(ExecutionMode executionMode, WriteMode writeMode)
+            throws Exception {
+        InMemoryWallets inMemoryWallets = new InMemoryWallets(WALLETS);
+        List<UUID> walletIds = inMemoryWallets.getWalletIds();
+        long initialBalance = inMemoryWallets.getWalletRepository().findById(walletIds.get(0)).getBalance();
+        OperationServiceFixture fixture = new OperationServiceFixture(inMemoryWallets.getWalletRepository(),
+                inMemoryWallets.getOperationRecordRepository())
+                .writeMode(writeMode)
+                .executionMode(executionMode)
+                .batcherThreads(4)
+                .pool(10, 100, OPERATIONS);
+        OperationServiceImpl operationService = fixture.build();
+
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        List<Future<CompletableFuture<OperationResponse>>> responses = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            OperationRequest request = new OperationRequest();
+            request.setUserId(String.valueOf(walletIds.get(i % WALLETS)));
+            request.setOperationType("DEPOSIT");
+            request.setAmount("10.00");
+            responses.add(requestThreads.submit(() -> operationService.processOperationAsync(request)));
+        }
+        for (Future<CompletableFuture<OperationResponse>> response : responses) {
+            Assertions.assertTrue(response.get().get().isResult());
+        }
+        requestThreads.shutdown();
+        fixture.shutdown();
+
+        for (UUID walletId : walletIds) {
+            Assertions.assertEquals(initialBalance + OPERATIONS / WALLETS * 1_000L,
+                    inMemoryWallets.getWalletRepository().findById(walletId).getBalance());
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.task.wallet.services.operations;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.exceptions.TooManyRequestsException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class OperationImportServiceImplTest {
+    private final OperationService operationService = mock(OperationService.class);
+    private final OperationImportServiceImpl operationImportService =
+            new OperationImportServiceImpl(operationService, new ObjectMapper(), 2);
+
+    @Test
+    @DisplayName("Every non-blank line gets a response line in input order, processed in chunks")
+    @SuppressWarnings("unchecked")
+    void whenImportOperations_thenWriteResponsePerLineInInputOrder() throws Exception {
+        when(operationService.processOperations(anyList())).thenAnswer(invocation -> {
+            List<OperationResponse> responses = new ArrayList<>();
+            for (OperationRequest request : (List<OperationRequest>) invocation.getArgument(0)) {
+                responses.add(OperationResponses.success(OperationType.valueOf(request.getOperationType())));
+            }
+            return responses;
+        });
+        String lines = """
+                {"userId":"56897422-d900-4b5c-9d90-5bd95a65917f","operationType":"DEPOSIT","amount":"10.00"}
+                {"userId":
+                
+                {"userId":"56897422-d900-4b5c-9d90-5bd95a65917f","operationType":"WITHDRAW","amount":"5.00"}
+                """;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        operationImportService.importOperations(
+                new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8)), output);
+
+        String[] responses = output.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(3, responses.length);
+        Assertions.assertTrue(responses[0].contains("\"operationType\":\"DEPOSIT\""));
+        Assertions.assertTrue(responses[1].contains("\"error\":\"Malformed JSON request\""));
+        Assertions.assertTrue(responses[2].contains("\"operationType\":\"WITHDRAW\""));
+        verify(operationService, times(2)).processOperations(anyList());
+    }
+
+    @Test
+    @DisplayName("Chunk rejected by admission control gets a failed line per operation and the import goes on")
+    @SuppressWarnings("unchecked")
+    void whenChunkIsNotAdmitted_thenWriteFailedLinesAndContinue() throws Exception {
+        when(operationService.processOperations(anyList()))
+                .thenThrow(new TooManyRequestsException("Service is overloaded, retry later", 1))
+                .thenAnswer(invocation -> List.of(OperationResponses.success(OperationType.DEPOSIT)));
+        String lines = """
+                {"userId":"56897422-d900-4b5c-9d90-5bd95a65917f","operationType":"DEPOSIT","amount":"10.00"}
+                {"userId":"56897422-d900-4b5c-9d90-5bd95a65917f","operationType":"DEPOSIT","amount":"10.00"}
+                {"userId":"56897422-d900-4b5c-9d90-5bd95a65917f","operationType":"DEPOSIT","amount":"10.00"}
+                """;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        operationImportService.importOperations(
+                new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8)), output);
+
+        String[] responses = output.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(3, responses.length);
+        Assertions.assertTrue(responses[0].contains("retry after 1 seconds"));
+        Assertions.assertTrue(responses[1].contains("retry after 1 seconds"));
+        Assertions.assertTrue(responses[2].contains("\"result\":true"));
+    }
+}
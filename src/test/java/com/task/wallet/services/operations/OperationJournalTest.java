@@ -0,0 +1,63 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.entities.OperationRecord;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+class OperationJournalTest {
+    private final UUID walletId = UUID.fromString("56897422-d900-4b5c-9d90-5bd95a65917f");
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Records are read back in order across segments")
+    void whenAppendBeyondSegment_thenRecordsAreReadAcrossSegments() throws Exception {
+        OperationJournal journal = new OperationJournal(directory, 256);
+        for (int sequence = 1; sequence <= 10; sequence++) {
+            journal.append(record(sequence, sequence % 2 == 0 ? "key-" + sequence : null));
+        }
+        journal.force();
+
+        List<OperationRecord> records = OperationJournal.readAll(directory);
+
+        Assertions.assertTrue(Files.exists(directory.resolve("segment-1.log")));
+        Assertions.assertEquals(10, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            Assertions.assertEquals(i + 1, records.get(i).getSequence());
+            Assertions.assertEquals(walletId, records.get(i).getWalletId());
+            Assertions.assertEquals(125L * (i + 1), records.get(i).getBalance());
+        }
+        Assertions.assertNull(records.get(0).getIdempotencyKey());
+        Assertions.assertEquals("key-2", records.get(1).getIdempotencyKey());
+    }
+
+    @Test
+    @DisplayName("Reading stops at a corrupted record")
+    void whenRecordIsCorrupted_thenReadingStopsBeforeIt() throws Exception {
+        OperationJournal journal = new OperationJournal(directory, 4096);
+        journal.append(record(1, null));
+        journal.append(record(2, null));
+        journal.force();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("segment-0.log").toFile(), "rw")) {
+            file.seek(file.readInt() + 8 + 12);
+            file.write(0xFF);
+        }
+
+        List<OperationRecord> records = OperationJournal.readAll(directory);
+
+        Assertions.assertEquals(1, records.size());
+        Assertions.assertEquals(1, records.get(0).getSequence());
+    }
+
+    private OperationRecord record(long sequence, String idempotencyKey) {
+        return new OperationRecord(walletId, sequence, OperationType.DEPOSIT, 125L,
+                125L * sequence, Instant.ofEpochSecond(1700000000L, 123), idempotencyKey, null);
+    }
+}
@@ -0,0 +1,129 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.services.WalletMetrics;
+import com.task.wallet.services.crud.WalletCache;
+import com.task.wallet.services.crud.WalletIdFilter;
+import com.task.wallet.services.stream.BalanceStreamService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.util.unit.DataSize;
+import java.nio.file.Path;
+import java.time.Duration;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Operation services wired by hand over the given repositories, with admission control and the wallet id filter
+ * disabled. Modes are passed through the constructors, as Spring passes the properties.
+ */
+public class OperationServiceFixture {
+    private final WalletRepository walletRepository;
+    private final OperationRecordRepository operationRecordRepository;
+    private final WalletMetrics walletMetrics;
+    private final WalletCache walletCache;
+    private BalanceStreamService balanceStreamService = mock(BalanceStreamService.class);
+    private WriteMode writeMode = WriteMode.BATCHED;
+    private ExecutionMode executionMode = ExecutionMode.CALLER;
+    private int batcherThreads = 1;
+    private int corePoolSize = 10;
+    private int maximumPoolSize = 100;
+    private int queueCapacity = 1000;
+    private int maxOptimisticRetries = 5;
+    private Duration optimisticBackoff = Duration.ofMillis(1);
+    private WalletOperationBatcher walletOperationBatcher;
+    private OperationServiceImpl operationService;
+
+    public OperationServiceFixture(WalletRepository walletRepository, OperationRecordRepository operationRecordRepository) {
+        this(walletRepository, operationRecordRepository, new SimpleMeterRegistry());
+    }
+
+    public OperationServiceFixture(WalletRepository walletRepository, OperationRecordRepository operationRecordRepository,
+                                   MeterRegistry meterRegistry) {
+        this.walletRepository = walletRepository;
+        this.operationRecordRepository = operationRecordRepository;
+        this.walletMetrics = new WalletMetrics(meterRegistry);
+        this.walletCache = new WalletCache(walletRepository, walletMetrics,
+                new WalletIdFilter(null, false, 1000, 0.01, Duration.ofMinutes(1)),
+                10000, Duration.ofSeconds(30), Duration.ofSeconds(10));
+    }
+
+    public OperationServiceFixture balanceStreamService(BalanceStreamService balanceStreamService) {
+        this.balanceStreamService = balanceStreamService;
+        return this;
+    }
+
+    public OperationServiceFixture writeMode(WriteMode writeMode) {
+        this.writeMode = writeMode;
+        return this;
+    }
+
+    public OperationServiceFixture executionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    public OperationServiceFixture batcherThreads(int batcherThreads) {
+        this.batcherThreads = batcherThreads;
+        return this;
+    }
+
+    public OperationServiceFixture pool(int corePoolSize, int maximumPoolSize, int queueCapacity) {
+        this.corePoolSize = corePoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public OperationServiceFixture optimisticRetries(int maxOptimisticRetries, Duration optimisticBackoff) {
+        this.maxOptimisticRetries = maxOptimisticRetries;
+        this.optimisticBackoff = optimisticBackoff;
+        return this;
+    }
+
+    public WalletMetrics getWalletMetrics() {
+        return walletMetrics;
+    }
+
+    public WalletCache getWalletCache() {
+        return walletCache;
+    }
+
+    public OperationServiceImpl build() {
+        WalletBalanceWriter walletBalanceWriter =
+                new WalletBalanceWriter(walletRepository, operationRecordRepository, balanceStreamService);
+        walletOperationBatcher = new WalletOperationBatcher(walletBalanceWriter, walletMetrics, 500, batcherThreads);
+        operationService = new OperationServiceImpl(walletBalanceWriter, new WalletLockStripes(64),
+                walletOperationBatcher, walletCache, idempotencyStore(), walletMetrics, admissionControl(),
+                writeMode, 100000, executionMode, corePoolSize, maximumPoolSize, queueCapacity,
+                maxOptimisticRetries, optimisticBackoff);
+        operationService.init();
+        return operationService;
+    }
+
+    /**
+     * Two shards journaling to the given directory, with snapshots taken only on shutdown.
+     */
+    public ShardedOperationServiceImpl buildSharded(Path journalDirectory, BalanceSnapshotWriter balanceSnapshotWriter) {
+        ShardedOperationServiceImpl shardedOperationService = new ShardedOperationServiceImpl(walletRepository,
+                idempotencyStore(), balanceSnapshotWriter, walletCache, walletMetrics, admissionControl(),
+                2, 100, journalDirectory.toString(), DataSize.ofKilobytes(64), Duration.ofHours(1), 1000, 1000);
+        shardedOperationService.init();
+        return shardedOperationService;
+    }
+
+    /**
+     * Stops the service and the batcher made by build.
+     */
+    public void shutdown() {
+        operationService.shutdown();
+        walletOperationBatcher.shutdown();
+    }
+
+    private IdempotencyStore idempotencyStore() {
+        return new IdempotencyStore(operationRecordRepository, 100000, Duration.ofHours(24));
+    }
+
+    private AdmissionControl admissionControl() {
+        return new AdmissionControl(walletMetrics, false, 200, 20, 2000, Duration.ofMillis(100), 2000, 2000, 1000);
+    }
+}
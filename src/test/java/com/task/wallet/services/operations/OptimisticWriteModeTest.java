@@ -0,0 +1,73 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.repositories.BalanceChange;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.repositories.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.UUID;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OptimisticWriteModeTest {
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UUID walletId = UUID.fromString("56897422-d900-4b5c-9d90-5bd95a65917f");
+
+    @Test
+    @DisplayName("Conflicting optimistic write is retried and succeeds without a fallback")
+    void whenConflictOnce_thenOperationIsRetried() {
+        when(walletRepository.findById(walletId)).thenReturn(new Wallet(walletId, 10_000L, "Moritz", "Marriner", 3));
+        when(walletRepository.compareAndSetBalance(eq(walletId), anyLong(), anyLong())).thenReturn(0, 1);
+
+        Assertions.assertTrue(createOperationService().processOperation(request()).isResult());
+
+        verify(walletRepository, times(2)).compareAndSetBalance(walletId, 3, 11_000L);
+        verify(walletRepository, never()).depositAmount(any(), anyLong());
+        Assertions.assertEquals(1, conflicts("retry"));
+        Assertions.assertEquals(0, conflicts("give_up"));
+    }
+
+    @Test
+    @DisplayName("Operation falls back to the atomic update when optimistic retries are exhausted")
+    void whenConflictsExhaustRetries_thenOperationIsAppliedAtomically() {
+        when(walletRepository.findById(walletId)).thenReturn(new Wallet(walletId, 10_000L, "Moritz", "Marriner", 3));
+        when(walletRepository.compareAndSetBalance(eq(walletId), anyLong(), anyLong())).thenReturn(0);
+        BalanceChange balanceChange = mock(BalanceChange.class);
+        when(balanceChange.getBalance()).thenReturn(11_000L);
+        when(balanceChange.getOperationSequence()).thenReturn(5L);
+        when(walletRepository.depositAmount(walletId, 1_000L)).thenReturn(balanceChange);
+
+        Assertions.assertTrue(createOperationService().processOperation(request()).isResult());
+
+        verify(walletRepository, times(3)).compareAndSetBalance(walletId, 3, 11_000L);
+        verify(walletRepository).depositAmount(walletId, 1_000L);
+        Assertions.assertEquals(2, conflicts("retry"));
+        Assertions.assertEquals(1, conflicts("give_up"));
+    }
+
+    private double conflicts(String outcome) {
+        return meterRegistry.counter("wallet.operations.optimistic.conflicts",
+                "operation.type", "DEPOSIT", "outcome", outcome).count();
+    }
+
+    private OperationServiceImpl createOperationService() {
+        return new OperationServiceFixture(walletRepository, mock(OperationRecordRepository.class), meterRegistry)
+                .writeMode(WriteMode.OPTIMISTIC)
+                .optimisticRetries(2, Duration.ofNanos(1000))
+                .build();
+    }
+
+    private OperationRequest request() {
+        OperationRequest operationRequest = new OperationRequest();
+        operationRequest.setUserId(walletId.toString());
+        operationRequest.setOperationType("DEPOSIT");
+        operationRequest.setAmount("10.00");
+        return operationRequest;
+    }
+}
@@ -0,0 +1,102 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.requests.OperationRequest;
+import com.task.wallet.entities.OperationRecord;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.services.crud.WalletCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import static org.mockito.Mockito.*;
+
+class ShardedOperationServiceImplTest {
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final OperationRecordRepository operationRecordRepository = mock(OperationRecordRepository.class);
+    private final BalanceSnapshotWriter balanceSnapshotWriter = mock(BalanceSnapshotWriter.class);
+    private final List<OperationRecord> writtenRecords = new ArrayList<>();
+    private final UUID walletId = UUID.fromString("56897422-d900-4b5c-9d90-5bd95a65917f");
+    private WalletCache walletCache;
+    @TempDir
+    Path journalDirectory;
+
+    @Test
+    @DisplayName("Operations change the in-memory balance and are written by the snapshot on shutdown")
+    void whenProcessOperations_thenSnapshotWritesJournaledRecords() throws Exception {
+        when(walletRepository.findById(walletId)).thenReturn(new Wallet(walletId, 10_000L, "Moritz", "Marriner", 3));
+        captureWrittenRecords();
+        ShardedOperationServiceImpl operationService = createOperationService();
+
+        Assertions.assertTrue(operationService.processOperation(request("DEPOSIT", "50.00")).isResult());
+        Assertions.assertFalse(operationService.processOperation(request("WITHDRAW", "200.00")).isResult());
+        Assertions.assertTrue(operationService.processOperation(request("WITHDRAW", "150.00")).isResult());
+        operationService.shutdown();
+
+        Assertions.assertEquals(2, writtenRecords.size());
+        Assertions.assertEquals(4, writtenRecords.get(0).getSequence());
+        Assertions.assertEquals(15_000L, writtenRecords.get(0).getBalance());
+        Assertions.assertEquals(5, writtenRecords.get(1).getSequence());
+        Assertions.assertEquals(0, writtenRecords.get(1).getBalance());
+    }
+
+    @Test
+    @DisplayName("Wallet is loaded for the shard once and is evicted from the cache as soon as an operation is journaled")
+    void whenOperationIsJournaled_thenCachedWalletIsEvicted() throws Exception {
+        when(walletRepository.findById(walletId)).thenReturn(new Wallet(walletId, 10_000L, "Moritz", "Marriner", 3));
+        when(walletRepository.findReadOnlyById(walletId)).thenReturn(new Wallet(walletId, 10_000L, "Moritz", "Marriner", 3));
+        ShardedOperationServiceImpl operationService = createOperationService();
+
+        walletCache.findById(walletId);
+        Assertions.assertTrue(operationService.processOperation(request("DEPOSIT", "50.00")).isResult());
+        walletCache.findById(walletId);
+        Assertions.assertTrue(operationService.processOperation(request("DEPOSIT", "50.00")).isResult());
+        walletCache.findById(walletId);
+        operationService.shutdown();
+
+        verify(walletRepository).findReadOnlyById(walletId);
+        verify(walletRepository, times(3)).findById(walletId);
+    }
+
+    @Test
+    @DisplayName("Records journaled before a crash are written to the database on the next startup")
+    void whenStartedAfterCrash_thenJournalIsReplayed() throws Exception {
+        OperationJournal journal = new OperationJournal(journalDirectory.resolve("shard-7"), 4096);
+        journal.append(new OperationRecord(walletId, 1, OperationType.DEPOSIT,
+                1_050L, 1_050L, Instant.now(), "key-1", null));
+        journal.force();
+        captureWrittenRecords();
+
+        ShardedOperationServiceImpl operationService = createOperationService();
+        operationService.shutdown();
+
+        Assertions.assertEquals(1, writtenRecords.size());
+        Assertions.assertEquals(1_050L, writtenRecords.get(0).getBalance());
+        Assertions.assertEquals("key-1", writtenRecords.get(0).getIdempotencyKey());
+        Assertions.assertTrue(OperationJournal.readAll(journalDirectory.resolve("shard-7")).isEmpty());
+    }
+
+    private void captureWrittenRecords() {
+        doAnswer(invocation -> writtenRecords.addAll(invocation.getArgument(0)))
+                .when(balanceSnapshotWriter).write(anyList());
+    }
+
+    private ShardedOperationServiceImpl createOperationService() {
+        OperationServiceFixture fixture = new OperationServiceFixture(walletRepository, operationRecordRepository);
+        walletCache = fixture.getWalletCache();
+        return fixture.buildSharded(journalDirectory, balanceSnapshotWriter);
+    }
+
+    private OperationRequest request(String operationType, String amount) {
+        OperationRequest operationRequest = new OperationRequest();
+        operationRequest.setUserId(walletId.toString());
+        operationRequest.setOperationType(operationType);
+        operationRequest.setAmount(amount);
+        return operationRequest;
+    }
+}
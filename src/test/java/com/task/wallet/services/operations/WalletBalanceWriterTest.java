@@ -0,0 +1,223 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.entities.OperationRecord;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.exceptions.IdempotencyConflictException;
+import com.task.wallet.exceptions.WalletNotFoundException;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.repositories.WalletRepository;
+import com.task.wallet.services.Money;
+import com.task.wallet.services.stream.BalanceStreamService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class WalletBalanceWriterTest {
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final OperationRecordRepository operationRecordRepository = mock(OperationRecordRepository.class);
+    private final BalanceStreamService balanceStreamService = mock(BalanceStreamService.class);
+    private final WalletBalanceWriter walletBalanceWriter =
+            new WalletBalanceWriter(walletRepository, operationRecordRepository, balanceStreamService);
+    private final UUID walletId = UUID.fromString("56897422-d900-4b5c-9d90-5bd95a65917f");
+
+    @Test
+    @DisplayName("Batch is applied in arrival order and withdraw beyond balance is rejected")
+    void whenApplyBatch_thenOperationsAreAppliedInOrder() {
+        Wallet wallet = new Wallet(walletId, 10_000L, "Moritz", "Marriner", 0);
+        when(walletRepository.findByIdForUpdate(walletId)).thenReturn(wallet);
+
+        List<OperationResponse> responses = walletBalanceWriter.applyBatch(walletId, List.of(
+                new WalletOperation(walletId, OperationType.WITHDRAW, 15_000L, null),
+                new WalletOperation(walletId, OperationType.DEPOSIT, 10_000L, null),
+                new WalletOperation(walletId, OperationType.WITHDRAW, 15_000L, null)));
+
+        Assertions.assertFalse(responses.get(0).isResult());
+        Assertions.assertTrue(responses.get(1).isResult());
+        Assertions.assertTrue(responses.get(2).isResult());
+        Assertions.assertEquals(5_000L, wallet.getBalance());
+        Assertions.assertEquals(2, wallet.getOperationSequence());
+        verify(operationRecordRepository).saveAll(argThat(records -> records.spliterator().getExactSizeIfKnown() == 2));
+        verify(balanceStreamService).publish(walletId, 2, 5_000L);
+    }
+
+    @Test
+    @DisplayName("Changed balance is published to the stream only after the transaction is committed")
+    void whenApplyBatchInTransaction_thenBalanceIsPublishedAfterCommit() {
+        Wallet wallet = new Wallet(walletId, 10_000L, "Moritz", "Marriner", 3);
+        when(walletRepository.findByIdForUpdate(walletId)).thenReturn(wallet);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            walletBalanceWriter.applyBatch(walletId,
+                    List.of(new WalletOperation(walletId, OperationType.DEPOSIT, 1_000L, null)));
+            verifyNoInteractions(balanceStreamService);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            verify(balanceStreamService).publish(walletId, 4, 11_000L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Operations with already processed idempotency keys are not applied again")
+    void whenApplyBatchWithRepeatedIdempotencyKeys_thenDuplicatesAreNotApplied() {
+        Wallet wallet = new Wallet(walletId, 10_000L, "Moritz", "Marriner", 7);
+        when(walletRepository.findByIdForUpdate(walletId)).thenReturn(wallet);
+        when(operationRecordRepository.findByWalletIdAndIdempotencyKeyIn(eq(walletId), anyCollection())).thenReturn(List.of(
+                new OperationRecord(walletId, 7, OperationType.DEPOSIT, 1_000L, 10_000L,
+                        Instant.now(), "applied-before", null)));
+
+        List<OperationResponse> responses = walletBalanceWriter.applyBatch(walletId, List.of(
+                new WalletOperation(walletId, OperationType.DEPOSIT, 1_000L, "applied-before"),
+                new WalletOperation(walletId, OperationType.DEPOSIT, 1_000L, "new-key"),
+                new WalletOperation(walletId, OperationType.DEPOSIT, 1_000L, "new-key")));
+
+        Assertions.assertTrue(responses.stream().allMatch(OperationResponse::isResult));
+        Assertions.assertEquals(11_000L, wallet.getBalance());
+        Assertions.assertEquals(8, wallet.getOperationSequence());
+    }
+
+    @Test
+    @DisplayName("Idempotency key of the wallet reused for another amount is rejected and not applied")
+    void whenApplyBatchWithKeyReusedForAnotherAmount_thenOperationIsRejected() {
+        Wallet wallet = new Wallet(walletId, 10_000L, "Moritz", "Marriner", 7);
+        when(walletRepository.findByIdForUpdate(walletId)).thenReturn(wallet);
+        when(operationRecordRepository.findByWalletIdAndIdempotencyKeyIn(eq(walletId), anyCollection())).thenReturn(List.of(
+                new OperationRecord(walletId, 7, OperationType.DEPOSIT, 1_000L, 10_000L,
+                        Instant.now(), "applied-before", null)));
+
+        List<OperationResponse> responses = walletBalanceWriter.applyBatch(walletId, List.of(
+                new WalletOperation(walletId, OperationType.DEPOSIT, 5_000L, "applied-before"),
+                new WalletOperation(walletId, OperationType.WITHDRAW, 1_000L, "applied-before")));
+
+        Assertions.assertTrue(responses.stream().noneMatch(OperationResponse::isResult));
+        Assertions.assertEquals(10_000L, wallet.getBalance());
+        Assertions.assertEquals(7, wallet.getOperationSequence());
+    }
+
+    @Test
+    @DisplayName("Batch for non-existent wallet fails as a whole")
+    void whenApplyBatchForNonExistentWallet_thenThrowWalletNotFoundException() {
+        List<WalletOperation> operations =
+                List.of(new WalletOperation(walletId, OperationType.DEPOSIT, 1_000L, null));
+
+        Assertions.assertThrows(WalletNotFoundException.class,
+                () -> walletBalanceWriter.applyBatch(walletId, operations));
+    }
+
+    @Test
+    @DisplayName("Deposit that would overflow the fixed-point balance is rejected without changing it")
+    void whenApplyBatchBeyondMaxBalance_thenDepositIsRejected() {
+        Wallet wallet = new Wallet(walletId, Money.MAX_BALANCE - 500L, "Moritz", "Marriner", 0);
+        when(walletRepository.findByIdForUpdate(walletId)).thenReturn(wallet);
+
+        List<OperationResponse> responses = walletBalanceWriter.applyBatch(walletId, List.of(
+                new WalletOperation(walletId, OperationType.DEPOSIT, 1_000L, null),
+                new WalletOperation(walletId, OperationType.DEPOSIT, 500L, null)));
+
+        Assertions.assertFalse(responses.get(0).isResult());
+        Assertions.assertTrue(responses.get(1).isResult());
+        Assertions.assertEquals(Money.MAX_BALANCE, wallet.getBalance());
+    }
+
+    @Test
+    @DisplayName("Transfer debits and credits both wallets and records both sides")
+    void whenTransfer_thenMoneyIsMovedAndBothSidesAreRecorded() {
+        UUID targetId = UUID.fromString("4a59f833-6120-4461-9963-dbdfac264024");
+        Wallet source = new Wallet(walletId, 10_000L, "Moritz", "Marriner", 2);
+        Wallet target = new Wallet(targetId, 500L, "Dee dee", "Cecchi", 5);
+        when(walletRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(target, source));
+
+        OperationResponse response = walletBalanceWriter.transfer(
+                new WalletOperation(walletId, OperationType.TRANSFER, 4_000L, "transfer-1", targetId));
+
+        Assertions.assertTrue(response.isResult());
+        Assertions.assertEquals(6_000L, source.getBalance());
+        Assertions.assertEquals(4_500L, target.getBalance());
+        Assertions.assertEquals(3, source.getOperationSequence());
+        Assertions.assertEquals(6, target.getOperationSequence());
+        verify(operationRecordRepository).saveAll(argThat(records -> {
+            List<OperationRecord> list = (List<OperationRecord>) records;
+            return list.get(0).getAmount() == -4_000L && targetId.equals(list.get(0).getCounterpartyWalletId())
+                    && "transfer-1".equals(list.get(0).getIdempotencyKey())
+                    && list.get(1).getAmount() == 4_000L && list.get(1).getIdempotencyKey() == null;
+        }));
+    }
+
+    @Test
+    @DisplayName("Duplicate transfer that got the locks after the original is not applied again")
+    void whenTransferKeyIsInLedgerAfterLocking_thenOriginalResponseIsReturned() {
+        UUID targetId = UUID.fromString("4a59f833-6120-4461-9963-dbdfac264024");
+        Wallet source = new Wallet(walletId, 6_000L, "Moritz", "Marriner", 3);
+        Wallet target = new Wallet(targetId, 4_500L, "Dee dee", "Cecchi", 6);
+        when(walletRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(source, target));
+        when(operationRecordRepository.findByWalletIdAndIdempotencyKey(walletId, "transfer-1")).thenReturn(
+                new OperationRecord(walletId, 3, OperationType.TRANSFER, -4_000L, 6_000L, Instant.now(),
+                        "transfer-1", targetId));
+
+        OperationResponse response = walletBalanceWriter.transfer(
+                new WalletOperation(walletId, OperationType.TRANSFER, 4_000L, "transfer-1", targetId));
+
+        Assertions.assertTrue(response.isResult());
+        Assertions.assertEquals(6_000L, source.getBalance());
+        Assertions.assertEquals(4_500L, target.getBalance());
+        verify(operationRecordRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("Transfer key reused for another target is an idempotency conflict")
+    void whenTransferKeyIsUsedForAnotherTarget_thenThrowIdempotencyConflictException() {
+        UUID targetId = UUID.fromString("4a59f833-6120-4461-9963-dbdfac264024");
+        Wallet source = new Wallet(walletId, 6_000L, "Moritz", "Marriner", 3);
+        Wallet target = new Wallet(targetId, 4_500L, "Dee dee", "Cecchi", 6);
+        when(walletRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(source, target));
+        when(operationRecordRepository.findByWalletIdAndIdempotencyKey(walletId, "transfer-1")).thenReturn(
+                new OperationRecord(walletId, 3, OperationType.TRANSFER, -4_000L, 6_000L, Instant.now(),
+                        "transfer-1", UUID.randomUUID()));
+        WalletOperation operation = new WalletOperation(walletId, OperationType.TRANSFER, 4_000L, "transfer-1", targetId);
+
+        Assertions.assertThrows(IdempotencyConflictException.class, () -> walletBalanceWriter.transfer(operation));
+        verify(operationRecordRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("Transfer beyond source's balance changes neither wallet")
+    void whenTransferBeyondBalance_thenNothingIsChanged() {
+        UUID targetId = UUID.fromString("4a59f833-6120-4461-9963-dbdfac264024");
+        Wallet source = new Wallet(walletId, 1_000L, "Moritz", "Marriner", 0);
+        Wallet target = new Wallet(targetId, 500L, "Dee dee", "Cecchi", 0);
+        when(walletRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(source, target));
+
+        OperationResponse response = walletBalanceWriter.transfer(
+                new WalletOperation(walletId, OperationType.TRANSFER, 4_000L, null, targetId));
+
+        Assertions.assertFalse(response.isResult());
+        Assertions.assertEquals(1_000L, source.getBalance());
+        Assertions.assertEquals(500L, target.getBalance());
+        verify(operationRecordRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("Optimistic write is conditioned on the read sequence and fails when the wallet was changed")
+    void whenApplyOptimisticAfterConcurrentChange_thenConflictIsThrown() {
+        when(walletRepository.findById(walletId)).thenReturn(new Wallet(walletId, 10_000L, "Moritz", "Marriner", 7));
+        when(walletRepository.compareAndSetBalance(walletId, 7, 7_000L)).thenReturn(1, 0);
+        WalletOperation operation = new WalletOperation(walletId, OperationType.WITHDRAW, 3_000L, null);
+
+        Assertions.assertTrue(walletBalanceWriter.applyOptimistic(operation).isResult());
+        Assertions.assertThrows(OptimisticLockingFailureException.class, () -> walletBalanceWriter.applyOptimistic(operation));
+
+        verify(operationRecordRepository, times(1)).save(argThat(record ->
+                record.getSequence() == 8 && record.getBalance() == 7_000L));
+    }
+}
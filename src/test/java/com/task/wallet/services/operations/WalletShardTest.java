@@ -0,0 +1,57 @@
+package com.task.wallet.services.operations;
+import com.task.wallet.dto.responses.OperationResponse;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.services.crud.WalletCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import static org.mockito.Mockito.*;
+
+class WalletShardTest {
+    private final UUID walletId = UUID.fromString("56897422-d900-4b5c-9d90-5bd95a65917f");
+    private final IdempotencyStore idempotencyStore =
+            new IdempotencyStore(mock(OperationRecordRepository.class), 1000, Duration.ofHours(1));
+    private final OperationJournal journal = mock(OperationJournal.class);
+
+    @Test
+    @DisplayName("Operation is neither remembered nor kept in the balance if its journal is not forced")
+    void whenJournalIsNotForced_thenOperationIsNotRemembered() throws Exception {
+        doThrow(new UncheckedIOException(new IOException("Disk is full"))).when(journal).force();
+        WalletShard walletShard = new WalletShard(0, idempotencyStore, mock(WalletCache.class), journal, 100);
+        walletShard.start();
+        WalletOperation operation = new WalletOperation(walletId, OperationType.DEPOSIT, 1_000L, "key-1");
+
+        CompletableFuture<OperationResponse> response =
+                walletShard.submit(operation, new Wallet(walletId, 10_000L, "Moritz", "Marriner", 3));
+
+        Assertions.assertThrows(ExecutionException.class, response::get);
+        Assertions.assertNull(idempotencyStore.findRemembered(operation));
+        Assertions.assertFalse(walletShard.holds(walletId));
+        walletShard.stop();
+    }
+
+    @Test
+    @DisplayName("Duplicate in the same group gets the response of the original once the journal is forced")
+    void whenDuplicateIsInSameGroup_thenItIsAppliedOnce() throws Exception {
+        WalletShard walletShard = new WalletShard(0, idempotencyStore, mock(WalletCache.class), journal, 100);
+        WalletOperation operation = new WalletOperation(walletId, OperationType.DEPOSIT, 1_000L, "key-1");
+        Wallet wallet = new Wallet(walletId, 10_000L, "Moritz", "Marriner", 3);
+
+        CompletableFuture<OperationResponse> first = walletShard.submit(operation, wallet);
+        CompletableFuture<OperationResponse> duplicate = walletShard.submit(operation, wallet);
+        walletShard.start();
+
+        Assertions.assertTrue(first.get().isResult());
+        Assertions.assertTrue(duplicate.get().isResult());
+        verify(journal, times(1)).append(any());
+        Assertions.assertNotNull(idempotencyStore.findRemembered(operation));
+        walletShard.stop();
+    }
+}
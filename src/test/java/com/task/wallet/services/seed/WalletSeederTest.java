@@ -0,0 +1,33 @@
+package com.task.wallet.services.seed;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.util.Random;
+import java.util.UUID;
+
+class WalletSeederTest {
+
+    @Test
+    @DisplayName("Generated rows are COPY CSV with a version 4 id and a balance in minor units")
+    void whenAppendWallets_thenRowsAreValidCsv() {
+        StringBuilder rows = new StringBuilder();
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            WalletSeeder.appendWallet(rows, random);
+        }
+
+        String[] lines = rows.toString().split("\n");
+        Assertions.assertEquals(1000, lines.length);
+        for (String line : lines) {
+            String[] fields = line.split(",");
+            Assertions.assertEquals(5, fields.length);
+            Assertions.assertEquals(4, UUID.fromString(fields[0]).version());
+            long balance = Long.parseLong(fields[1]);
+            Assertions.assertTrue(balance >= 0 && balance <= 50_000_000L);
+            Assertions.assertEquals("0", fields[4]);
+        }
+        StringBuilder repeated = new StringBuilder();
+        WalletSeeder.appendWallet(repeated, new Random(42));
+        Assertions.assertEquals(lines[0] + "\n", repeated.toString());
+    }
+}
@@ -0,0 +1,92 @@
+package com.task.wallet.support;
+import com.task.wallet.entities.Wallet;
+import com.task.wallet.repositories.BalanceChange;
+import com.task.wallet.repositories.OperationRecordRepository;
+import com.task.wallet.repositories.WalletRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Stand-in for Postgres: repositories backed by a concurrent map, built as stub-only mocks so that
+ * invocations are not recorded during long benchmark runs. Shared by the benchmarks and the concurrency tests.
+ */
+public class InMemoryWallets {
+    private final ConcurrentMap<UUID, Wallet> wallets = new ConcurrentHashMap<>();
+    private final List<UUID> walletIds = new ArrayList<>();
+    private final WalletRepository walletRepository = mock(WalletRepository.class, withSettings().stubOnly());
+    private final OperationRecordRepository operationRecordRepository =
+            mock(OperationRecordRepository.class, withSettings().stubOnly());
+
+    public InMemoryWallets(int count) {
+        for (int i = 0; i < count; i++) {
+            UUID walletId = UUID.randomUUID();
+            wallets.put(walletId, new Wallet(walletId, 100_000_000L, "Owner", "Benchmark", 0));
+            walletIds.add(walletId);
+        }
+        when(walletRepository.findById(any(UUID.class))).thenAnswer(invocation -> copy(invocation.getArgument(0)));
+        when(walletRepository.findReadOnlyById(any(UUID.class))).thenAnswer(invocation -> copy(invocation.getArgument(0)));
+        when(walletRepository.findByIdForUpdate(any(UUID.class)))
+                .thenAnswer(invocation -> wallets.get(invocation.<UUID>getArgument(0)));
+        when(walletRepository.depositAmount(any(UUID.class), anyLong())).thenAnswer(invocation ->
+                change(invocation.getArgument(0), invocation.getArgument(1), false));
+        when(walletRepository.withdrawAmount(any(UUID.class), anyLong())).thenAnswer(invocation ->
+                change(invocation.getArgument(0), invocation.getArgument(1), true));
+        when(operationRecordRepository.findByWalletIdAndIdempotencyKeyIn(any(UUID.class), anyCollection()))
+                .thenReturn(List.of());
+    }
+
+    public List<UUID> getWalletIds() {
+        return walletIds;
+    }
+
+    public WalletRepository getWalletRepository() {
+        return walletRepository;
+    }
+
+    public OperationRecordRepository getOperationRecordRepository() {
+        return operationRecordRepository;
+    }
+
+    private Wallet copy(UUID walletId) {
+        Wallet wallet = wallets.get(walletId);
+        if (wallet == null) {
+            return null;
+        }
+        synchronized (wallet) {
+            return new Wallet(wallet.getId(), wallet.getBalance(), wallet.getOwnerFirstName(),
+                    wallet.getOwnerLastName(), wallet.getOperationSequence());
+        }
+    }
+
+    private BalanceChange change(UUID walletId, long amount, boolean withdraw) {
+        Wallet wallet = wallets.get(walletId);
+        if (wallet == null) {
+            return null;
+        }
+        synchronized (wallet) {
+            if (withdraw && wallet.getBalance() < amount) {
+                return null;
+            }
+            wallet.setBalance(withdraw ? wallet.getBalance() - amount : wallet.getBalance() + amount);
+            wallet.setOperationSequence(wallet.getOperationSequence() + 1);
+            long balance = wallet.getBalance();
+            long sequence = wallet.getOperationSequence();
+            return new BalanceChange() {
+                @Override
+                public Long getBalance() {
+                    return balance;
+                }
+
+                @Override
+                public Long getOperationSequence() {
+                    return sequence;
+                }
+            };
+        }
+    }
+}